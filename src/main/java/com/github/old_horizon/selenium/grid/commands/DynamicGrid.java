@@ -4,6 +4,7 @@ import com.github.old_horizon.selenium.grid.commands.downloads.DeleteFiles;
 import com.github.old_horizon.selenium.grid.commands.downloads.GetFile;
 import com.github.old_horizon.selenium.grid.commands.downloads.ListFiles;
 import com.github.old_horizon.selenium.grid.distributor.LocalDistributor;
+import com.github.old_horizon.selenium.grid.distributor.SessionCreatorOptions;
 import com.github.old_horizon.selenium.grid.node.KubernetesNode;
 import com.google.auto.service.AutoService;
 import com.google.common.collect.ImmutableSet;
@@ -115,6 +116,7 @@ public class DynamicGrid extends TemplateGridServerCommand {
         combinedHandler.addHandler(sessions);
 
         var distributorOptions = new DistributorOptions(config);
+        var sessionCreatorOptions = new SessionCreatorOptions(config);
         var newSessionRequestOptions = new NewSessionQueueOptions(config);
         var queue = new LocalNewSessionQueue(
                 tracer,
@@ -137,7 +139,9 @@ public class DynamicGrid extends TemplateGridServerCommand {
                 distributorOptions.shouldRejectUnsupportedCaps(),
                 newSessionRequestOptions.getSessionRequestRetryInterval(),
                 distributorOptions.getNewSessionThreadPoolSize(),
-                distributorOptions.getSlotMatcher());
+                distributorOptions.getSlotMatcher(),
+                sessionCreatorOptions.getExecutorMode(),
+                sessionCreatorOptions.getQueueSize());
         combinedHandler.addHandler(distributor);
 
         var router = new Router(tracer, clientFactory, sessions, queue, distributor)
@@ -190,6 +194,7 @@ public class DynamicGrid extends TemplateGridServerCommand {
         httpHandler = combine(httpHandler, Route.get("/readyz").to(() -> readinessCheck));
 
         combinedHandler.addHandler(node);
+        node.recoverSessions(sessions::add);
         distributor.add(node);
 
         bus.addListener(NodeDrainComplete.listener(nodeId -> {
@@ -1,8 +1,15 @@
 package com.github.old_horizon.selenium.grid.distributor;
 
+import org.openqa.selenium.BuildInfo;
 import org.openqa.selenium.events.EventBus;
+import org.openqa.selenium.grid.data.NodeHeartBeatEvent;
+import org.openqa.selenium.grid.data.NodeStatus;
+import org.openqa.selenium.grid.data.Slot;
+import org.openqa.selenium.grid.data.SlotId;
 import org.openqa.selenium.grid.data.SlotMatcher;
+import org.openqa.selenium.grid.distributor.GridModel;
 import org.openqa.selenium.grid.distributor.selector.SlotSelector;
+import org.openqa.selenium.grid.jmx.ManagedAttribute;
 import org.openqa.selenium.grid.jmx.ManagedService;
 import org.openqa.selenium.grid.security.Secret;
 import org.openqa.selenium.grid.sessionmap.SessionMap;
@@ -10,14 +17,22 @@ import org.openqa.selenium.grid.sessionqueue.NewSessionQueue;
 import org.openqa.selenium.remote.http.HttpClient;
 import org.openqa.selenium.remote.tracing.Tracer;
 
+import java.lang.reflect.Field;
 import java.time.Duration;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
 
 @ManagedService(objectName = "org.seleniumhq.grid:type=Distributor,name=LocalDistributor",
         description = "Grid 4 node distributor")
 public class LocalDistributor extends org.openqa.selenium.grid.distributor.local.LocalDistributor {
 
+    private static final Logger LOG = Logger.getLogger(LocalDistributor.class.getName());
+
+    private final SessionCreatorExecutor sessionCreatorExecutor;
+    private final GridModel model;
+
     public LocalDistributor(Tracer tracer,
                             EventBus bus,
                             HttpClient.Factory clientFactory,
@@ -29,23 +44,86 @@ public class LocalDistributor extends org.openqa.selenium.grid.distributor.local
                             boolean rejectUnsupportedCaps,
                             Duration sessionRequestRetryInterval,
                             int newSessionThreadPoolSize,
-                            SlotMatcher slotMatcher) {
+                            SlotMatcher slotMatcher,
+                            SessionCreatorExecutor.Mode sessionCreatorMode,
+                            int sessionCreatorQueueSize) {
         super(tracer, bus, clientFactory, sessions, sessionQueue, slotSelector, registrationSecret, healthcheckInterval,
                 rejectUnsupportedCaps, sessionRequestRetryInterval, newSessionThreadPoolSize, slotMatcher);
+        this.sessionCreatorExecutor = SessionCreatorExecutor.create(sessionCreatorMode, newSessionThreadPoolSize,
+                sessionCreatorQueueSize);
+        // both fields are private to Selenium's LocalDistributor (checked against 4.19), so an upgrade that renames
+        // or retypes them must stop the distributor at startup instead of silently losing these features
+        getSuperField("sessionCreatorExecutor", ExecutorService.class).shutdownNow();
+        setSuperField("sessionCreatorExecutor", this.sessionCreatorExecutor);
+        this.model = getSuperField("model", GridModel.class);
+        // heartbeats only touch known nodes, so slots added or removed by a config reload would otherwise stay unknown
+        bus.addListener(NodeHeartBeatEvent.listener(this::refreshSlots));
+    }
+
+    @ManagedAttribute(name = "SessionCreatorMode")
+    public String getSessionCreatorMode() {
+        return sessionCreatorExecutor.getMode().name();
+    }
+
+    @ManagedAttribute(name = "SessionCreatorActive")
+    public int getSessionCreatorActiveCount() {
+        return sessionCreatorExecutor.getActiveCount();
+    }
+
+    @ManagedAttribute(name = "SessionCreatorQueued")
+    public int getSessionCreatorQueuedCount() {
+        return sessionCreatorExecutor.getQueuedCount();
+    }
+
+    @ManagedAttribute(name = "SessionCreatorRejected")
+    public long getSessionCreatorRejectedCount() {
+        return sessionCreatorExecutor.getRejectedCount();
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        sessionCreatorExecutor.shutdown();
+    }
+
+    private void refreshSlots(NodeStatus status) {
+        model.getSnapshot().stream().filter(known -> known.getNodeId().equals(status.getNodeId())).findFirst()
+                .filter(known -> !getSlotIds(known).equals(getSlotIds(status)))
+                .ifPresent(known -> {
+                    LOG.info(String.format("Refreshing slots of node %s (%d -> %d)", status.getNodeId(),
+                            known.getSlots().size(), status.getSlots().size()));
+                    model.refresh(status);
+                });
+    }
+
+    private <T> T getSuperField(String name, Class<T> type) {
+        try {
+            return type.cast(getSuperclassField(name).get(this));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            throw new IllegalStateException(unsupportedVersion(name), e);
+        }
+    }
+
+    private void setSuperField(String name, Object value) {
         try {
-            var sessionCreatorExecutor = getClass().getSuperclass().getDeclaredField("sessionCreatorExecutor");
-            sessionCreatorExecutor.setAccessible(true);
-            var executorService = (ExecutorService) sessionCreatorExecutor.get(this);
-            executorService.shutdown();
-            executorService.shutdownNow();
-            sessionCreatorExecutor.set(this, Executors.newCachedThreadPool(r -> {
-                var thread = new Thread(r);
-                thread.setName("Local Distributor - Session Creation");
-                thread.setDaemon(true);
-                return thread;
-            }));
-        } catch (NoSuchFieldException | IllegalAccessException e) {
-            throw new RuntimeException("Failed to replace sessionCreatorExecutor.", e);
+            getSuperclassField(name).set(this, value);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            throw new IllegalStateException(unsupportedVersion(name), e);
         }
     }
+
+    private static Field getSuperclassField(String name) throws NoSuchFieldException {
+        var field = LocalDistributor.class.getSuperclass().getDeclaredField(name);
+        field.setAccessible(true);
+        return field;
+    }
+
+    private static String unsupportedVersion(String field) {
+        return String.format("Unable to access LocalDistributor.%s, this Selenium version (%s) is not supported",
+                field, new BuildInfo().getReleaseLabel());
+    }
+
+    private static Set<SlotId> getSlotIds(NodeStatus status) {
+        return status.getSlots().stream().map(Slot::getId).collect(Collectors.toSet());
+    }
 }
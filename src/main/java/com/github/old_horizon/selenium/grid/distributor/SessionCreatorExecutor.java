@@ -0,0 +1,123 @@
+package com.github.old_horizon.selenium.grid.distributor;
+
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+public class SessionCreatorExecutor implements Executor {
+
+    private static final Logger LOG = Logger.getLogger(SessionCreatorExecutor.class.getName());
+    private static final String THREAD_NAME = "Local Distributor - Session Creation";
+
+    private final Mode mode;
+    private final ExecutorService delegate;
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong rejected = new AtomicLong();
+
+    private SessionCreatorExecutor(Mode mode, Optional<ExecutorService> virtualThreads, int poolSize,
+                                   int queueSize) {
+        this.mode = mode;
+        this.delegate = virtualThreads.orElseGet(() -> mode == Mode.Bounded ? newBoundedPool(poolSize, queueSize) :
+                Executors.newCachedThreadPool(newPlatformThreadFactory()));
+    }
+
+    static SessionCreatorExecutor create(Mode mode, int poolSize, int queueSize) {
+        var virtualThreads = mode == Mode.Virtual ? newVirtualThreadExecutor() : Optional.<ExecutorService>empty();
+        if (mode == Mode.Virtual && virtualThreads.isEmpty()) {
+            LOG.warning(String.format("Virtual threads are not available on Java %s, falling back to a cached pool",
+                    Runtime.version().feature()));
+            mode = Mode.Cached;
+        }
+        LOG.info(String.format("Creating sessions on %s threads", mode.name().toLowerCase()));
+        return new SessionCreatorExecutor(mode, virtualThreads, Math.max(poolSize, 1), Math.max(queueSize, 1));
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        queued.incrementAndGet();
+        try {
+            delegate.execute(() -> {
+                queued.decrementAndGet();
+                active.incrementAndGet();
+                try {
+                    command.run();
+                } finally {
+                    active.decrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            queued.decrementAndGet();
+            throw e;
+        }
+    }
+
+    Mode getMode() {
+        return mode;
+    }
+
+    int getActiveCount() {
+        return active.get();
+    }
+
+    int getQueuedCount() {
+        return queued.get();
+    }
+
+    long getRejectedCount() {
+        return rejected.get();
+    }
+
+    void shutdown() {
+        delegate.shutdown();
+    }
+
+    private ExecutorService newBoundedPool(int poolSize, int queueSize) {
+        // the distributor has already taken the requests off the queue, so a full pool must not drop them;
+        // running on the caller instead stalls the distributor until a creation thread frees up
+        return new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), newPlatformThreadFactory(), (r, executor) -> {
+            if (executor.isShutdown()) {
+                throw new RejectedExecutionException("Session creator has been shut down");
+            }
+            rejected.incrementAndGet();
+            r.run();
+        });
+    }
+
+    private static ThreadFactory newPlatformThreadFactory() {
+        return r -> {
+            var thread = new Thread(r);
+            thread.setName(THREAD_NAME);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static Optional<ExecutorService> newVirtualThreadExecutor() {
+        // compiled for Java 11, so the Java 21 APIs are looked up reflectively
+        try {
+            var builderClass = Class.forName("java.lang.Thread$Builder");
+            var builder = builderClass.getMethod("name", String.class)
+                    .invoke(Thread.class.getMethod("ofVirtual").invoke(null), THREAD_NAME);
+            var factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            return Optional.of((ExecutorService) Executors.class
+                    .getMethod("newThreadPerTaskExecutor", ThreadFactory.class).invoke(null, factory));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return Optional.empty();
+        }
+    }
+
+    public enum Mode {
+        Virtual, Bounded, Cached
+    }
+}
@@ -0,0 +1,28 @@
+package com.github.old_horizon.selenium.grid.distributor;
+
+import org.openqa.selenium.grid.config.Config;
+import org.openqa.selenium.grid.distributor.config.DistributorOptions;
+
+public class SessionCreatorOptions {
+
+    private static final String SECTION_NAME = DistributorOptions.DISTRIBUTOR_SECTION;
+
+    private final Config config;
+
+    public SessionCreatorOptions(Config config) {
+        this.config = config;
+    }
+
+    public SessionCreatorExecutor.Mode getExecutorMode() {
+        try {
+            return config.get(SECTION_NAME, "session-creator-executor").map(SessionCreatorExecutor.Mode::valueOf)
+                    .orElse(SessionCreatorExecutor.Mode.Virtual);
+        } catch (Exception e) {
+            return SessionCreatorExecutor.Mode.Virtual;
+        }
+    }
+
+    public int getQueueSize() {
+        return Math.max(config.getInt(SECTION_NAME, "session-creator-queue-size").orElse(100), 1);
+    }
+}
@@ -0,0 +1,47 @@
+package com.github.old_horizon.selenium.grid.node;
+
+import io.fabric8.kubernetes.client.Config;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.KubernetesClientBuilder;
+
+import java.time.Duration;
+
+class ApiClientSettings {
+
+    private final int maxConcurrentRequests;
+    private final int maxConcurrentRequestsPerHost;
+    private final Duration connectionTimeout;
+    private final Duration requestTimeout;
+    private final boolean http2Enabled;
+    private final double qps;
+    private final int burst;
+
+    ApiClientSettings(int maxConcurrentRequests, int maxConcurrentRequestsPerHost, Duration connectionTimeout,
+                      Duration requestTimeout, boolean http2Enabled, double qps, int burst) {
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.maxConcurrentRequestsPerHost = maxConcurrentRequestsPerHost;
+        this.connectionTimeout = connectionTimeout;
+        this.requestTimeout = requestTimeout;
+        this.http2Enabled = http2Enabled;
+        this.qps = qps;
+        this.burst = burst;
+    }
+
+    double getQps() {
+        return qps;
+    }
+
+    int getBurst() {
+        return burst;
+    }
+
+    KubernetesClient createClient() {
+        var config = Config.autoConfigure(null);
+        config.setMaxConcurrentRequests(maxConcurrentRequests);
+        config.setMaxConcurrentRequestsPerHost(maxConcurrentRequestsPerHost);
+        config.setConnectionTimeout(Math.toIntExact(connectionTimeout.toMillis()));
+        config.setRequestTimeout(Math.toIntExact(requestTimeout.toMillis()));
+        config.setHttp2Disable(!http2Enabled);
+        return new KubernetesClientBuilder().withConfig(config).build();
+    }
+}
@@ -0,0 +1,74 @@
+package com.github.old_horizon.selenium.grid.node;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import org.openqa.selenium.Capabilities;
+import org.openqa.selenium.ImmutableCapabilities;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+
+class CapabilityMatchCache {
+
+    private final int maximumSize;
+    private volatile Generation generation;
+    private volatile CacheStats retiredStats = new CacheStats(0, 0, 0, 0, 0, 0);
+
+    CapabilityMatchCache(List<SlotGroup> slotGroups, int maximumSize) {
+        this.maximumSize = maximumSize;
+        this.generation = new Generation(slotGroups, maximumSize);
+    }
+
+    List<SlotGroup> getMatchingGroups(Capabilities capabilities) {
+        return generation.getMatchingGroups(capabilities);
+    }
+
+    void update(List<SlotGroup> slotGroups) {
+        // a load still running against the previous groups can only populate the previous cache
+        var previous = generation;
+        generation = new Generation(slotGroups, maximumSize);
+        retiredStats = retiredStats.plus(previous.matches.stats());
+    }
+
+    long getHitCount() {
+        return getStats().hitCount();
+    }
+
+    long getMissCount() {
+        return getStats().missCount();
+    }
+
+    double getHitRate() {
+        return getStats().hitRate();
+    }
+
+    private CacheStats getStats() {
+        return retiredStats.plus(generation.matches.stats());
+    }
+
+    private static class Generation {
+
+        private final List<SlotGroup> slotGroups;
+        private final Cache<Capabilities, List<SlotGroup>> matches;
+
+        Generation(List<SlotGroup> slotGroups, int maximumSize) {
+            this.slotGroups = slotGroups;
+            this.matches = CacheBuilder.newBuilder()
+                    .maximumSize(maximumSize)
+                    .recordStats()
+                    .build();
+        }
+
+        List<SlotGroup> getMatchingGroups(Capabilities capabilities) {
+            try {
+                return matches.get(ImmutableCapabilities.copyOf(capabilities), () -> slotGroups.stream()
+                        .filter(group -> group.test(capabilities))
+                        .collect(Collectors.toUnmodifiableList()));
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+    }
+}
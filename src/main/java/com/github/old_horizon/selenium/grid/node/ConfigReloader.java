@@ -0,0 +1,76 @@
+package com.github.old_horizon.selenium.grid.node;
+
+import org.openqa.selenium.concurrent.GuardedRunnable;
+import org.openqa.selenium.grid.config.CompoundConfig;
+import org.openqa.selenium.grid.config.Config;
+import org.openqa.selenium.grid.config.TomlConfig;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+class ConfigReloader {
+
+    private static final Logger LOG = Logger.getLogger(ConfigReloader.class.getName());
+
+    private final Path path;
+    private final Config baseConfig;
+    private final Duration interval;
+    private final Consumer<KubernetesOptions> listener;
+    private final ScheduledExecutorService executor;
+    private String lastContent;
+
+    ConfigReloader(Path path, Config baseConfig, Duration interval, Consumer<KubernetesOptions> listener) {
+        this.path = path;
+        this.baseConfig = baseConfig;
+        this.interval = interval;
+        this.listener = listener;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            var thread = new Thread(r);
+            thread.setDaemon(true);
+            thread.setName("Kubernetes Node - Config Reloader");
+            return thread;
+        });
+    }
+
+    void start() {
+        lastContent = read();
+        // polling rather than a WatchService, since ConfigMap mounts are updated by swapping symlinks
+        executor.scheduleWithFixedDelay(GuardedRunnable.guard(this::check), interval.toMillis(), interval.toMillis(),
+                TimeUnit.MILLISECONDS);
+        LOG.info(String.format("Watching %s for configuration changes", path));
+    }
+
+    void check() {
+        var content = read();
+        if (content == null || Objects.equals(content, lastContent)) {
+            return;
+        }
+        lastContent = content;
+        LOG.info(String.format("Configuration %s changed, reloading kubernetes configs", path));
+        try {
+            listener.accept(new KubernetesOptions(new CompoundConfig(new TomlConfig(new StringReader(content)),
+                    baseConfig)));
+        } catch (RuntimeException e) {
+            LOG.log(Level.WARNING, String.format("Unable to reload configuration %s", path), e);
+        }
+    }
+
+    private String read() {
+        try {
+            return Files.readString(path);
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, String.format("Unable to read configuration %s", path), e);
+            return null;
+        }
+    }
+}
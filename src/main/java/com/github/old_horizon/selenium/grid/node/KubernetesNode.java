@@ -1,11 +1,11 @@
 package com.github.old_horizon.selenium.grid.node;
 
+import com.github.old_horizon.selenium.k8s.ApiMetrics;
+import com.github.old_horizon.selenium.k8s.ClusterCapacity;
 import com.github.old_horizon.selenium.k8s.KubernetesDriver;
-import com.google.common.base.Ticker;
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.RemovalNotification;
-import io.fabric8.kubernetes.client.KubernetesClientBuilder;
+import com.github.old_horizon.selenium.k8s.PodName;
+import com.github.old_horizon.selenium.k8s.PodTerminator;
+import io.fabric8.kubernetes.api.model.Pod;
 import org.openqa.selenium.*;
 import org.openqa.selenium.concurrent.GuardedRunnable;
 import org.openqa.selenium.events.EventBus;
@@ -28,6 +28,7 @@ import org.openqa.selenium.grid.server.EventBusOptions;
 import org.openqa.selenium.grid.server.NetworkOptions;
 import org.openqa.selenium.internal.Debug;
 import org.openqa.selenium.internal.Either;
+import org.openqa.selenium.net.HostIdentifier;
 import org.openqa.selenium.remote.SessionId;
 import org.openqa.selenium.remote.http.HttpClient;
 import org.openqa.selenium.remote.http.HttpRequest;
@@ -41,12 +42,16 @@ import java.net.URISyntaxException;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.openqa.selenium.grid.data.Availability.DRAINING;
 import static org.openqa.selenium.grid.data.Availability.UP;
@@ -62,42 +67,60 @@ import static org.openqa.selenium.remote.tracing.AttributeKey.*;
 public class KubernetesNode extends Node {
 
     private static final Logger LOG = Logger.getLogger(KubernetesNode.class.getName());
+    private static final Duration RECORDING_SHUTDOWN_TIMEOUT = Duration.ofSeconds(10);
 
     private final EventBus bus;
     private final URI uri;
-    private final List<SessionSlot> factories;
+    private final NodeStatusSnapshot statusSnapshot;
+    private final CapabilityMatchCache matchCache;
+    private final Map<UUID, SlotGroup> slotGroupsBySlotId = new ConcurrentHashMap<>();
+    private final Object slotGroupsLock = new Object();
+    private final VideoCollector videoCollector;
+    private final PodTerminator terminator;
+    private final SessionRecovery recovery;
+    private final OrphanReaper reaper;
+    private final ApiMetrics apiMetrics;
+    private final PodCreationLimiter creationLimiter;
     private final int maxSessionCount;
     private final boolean cdpEnabled;
     private final boolean bidiEnabled;
     private final Duration heartbeatPeriod;
-    private final Cache<SessionId, SessionSlot> currentSessions;
+    private final SessionTimeoutPolicy timeoutPolicy;
+    private final SessionRegistry currentSessions;
     private final AtomicInteger pendingSessions = new AtomicInteger();
+    private final AtomicInteger reservedSessions = new AtomicInteger();
+    private volatile List<SlotGroup> slotGroups;
 
     public KubernetesNode(Tracer tracer, EventBus bus, Secret registrationSecret, NodeId nodeId,
-                          URI uri, List<SessionSlot> factories, int maxSessionCount, boolean cdpEnabled,
-                          boolean bidiEnabled, Duration sessionTimeout, Duration heartbeatPeriod) {
+                          URI uri, List<SlotGroup> slotGroups, VideoCollector videoCollector,
+                          Duration videoCollectorShutdownTimeout, PodTerminator terminator,
+                          Duration terminatorShutdownTimeout, SessionRecovery recovery, OrphanReaper reaper,
+                          ApiMetrics apiMetrics, PodCreationLimiter creationLimiter, int shutdownConcurrency,
+                          Duration shutdownTimeout, int maxSessionCount,
+                          boolean cdpEnabled, boolean bidiEnabled, SessionTimeoutPolicy timeoutPolicy,
+                          Duration heartbeatPeriod, int capabilityMatchCacheSize) {
         super(tracer, nodeId, uri, registrationSecret);
         this.bus = bus;
         this.uri = uri;
-        this.factories = factories;
+        this.statusSnapshot = new NodeStatusSnapshot(nodeId, slotGroups.stream()
+                .flatMap(g -> g.getSlots().stream()).collect(Collectors.toList()), (slots, availability) ->
+                new NodeStatus(nodeId, uri, maxSessionCount, slots, availability, heartbeatPeriod, getNodeVersion(),
+                        getOsInfo()));
+        slotGroups.forEach(g -> g.getSlots().forEach(slot -> slotGroupsBySlotId.put(slot.getId(), g)));
+        this.slotGroups = List.copyOf(slotGroups);
+        this.matchCache = new CapabilityMatchCache(slotGroups, capabilityMatchCacheSize);
+        this.videoCollector = videoCollector;
+        this.terminator = terminator;
+        this.recovery = recovery;
+        this.reaper = reaper;
+        this.apiMetrics = apiMetrics;
+        this.creationLimiter = creationLimiter;
         this.maxSessionCount = maxSessionCount;
         this.cdpEnabled = cdpEnabled;
         this.bidiEnabled = bidiEnabled;
         this.heartbeatPeriod = heartbeatPeriod;
-        this.currentSessions = CacheBuilder.newBuilder()
-                .expireAfterAccess(sessionTimeout)
-                .ticker(Ticker.systemTicker())
-                .removalListener(this::stopTimedOutSession)
-                .build();
-
-        var sessionCleanupNodeService = Executors.newSingleThreadScheduledExecutor(r -> {
-            var thread = new Thread(r);
-            thread.setDaemon(true);
-            thread.setName("Kubernetes Node - Session Cleanup " + uri);
-            return thread;
-        });
-        sessionCleanupNodeService.scheduleAtFixedRate(
-                GuardedRunnable.guard(currentSessions::cleanUp), 30, 30, TimeUnit.SECONDS);
+        this.timeoutPolicy = timeoutPolicy;
+        this.currentSessions = new SessionRegistry(Duration.ofSeconds(1), this::stopTimedOutSession);
 
         var heartbeatNodeService = Executors.newSingleThreadScheduledExecutor(r -> {
             var thread = new Thread(r);
@@ -116,15 +139,17 @@ public class KubernetesNode extends Node {
             }
         }));
 
-        Runtime.getRuntime().addShutdownHook(new Thread(this::stopAllSessions));
+        getWorkerPools().forEach(WorkerPool::start);
+        reaper.start(this::getLivePodNames);
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> shutdown(shutdownConcurrency, shutdownTimeout,
+                videoCollectorShutdownTimeout, terminatorShutdownTimeout)));
         new JMXHelper().register(this);
     }
 
-    private void stopTimedOutSession(RemovalNotification<SessionId, SessionSlot> notification) {
-        if (notification.getKey() != null && notification.getValue() != null) {
-            var slot = notification.getValue();
-            var id = notification.getKey();
-            if (notification.wasEvicted()) {
+    private void stopTimedOutSession(SessionId id, SessionSlot slot, boolean expired) {
+        if (id != null && slot != null) {
+            if (expired) {
                 LOG.log(Level.INFO, () -> String.format("Session id %s timed out, stopping...", id));
                 try {
                     slot.execute(new HttpRequest(DELETE, "/session/" + id));
@@ -133,6 +158,7 @@ public class KubernetesNode extends Node {
                 }
             }
             slot.stop();
+            release(slot);
             if (this.isDraining()) {
                 var done = pendingSessions.decrementAndGet();
                 if (done <= 0) {
@@ -157,34 +183,215 @@ public class KubernetesNode extends Node {
         var tracer = loggingOptions.getTracer();
         var bus = eventOptions.getEventBus();
         var clientFactory = networkOptions.getHttpClientFactory(tracer);
-        var k8s = new KubernetesDriver(new KubernetesClientBuilder().build());
-        var factories = createFactories(k8sOptions, tracer, clientFactory, bus, k8s);
+        var apiClientSettings = k8sOptions.getApiClientSettings();
+        var k8s = new KubernetesDriver(apiClientSettings.createClient(), apiClientSettings.getQps(),
+                apiClientSettings.getBurst());
+        var instance = new PodName(HostIdentifier.getHostName());
+        // recovered sessions must outlive the grid pod, so their workers belong to whatever replaces it instead
+        var owner = new WorkerOwner(instance, k8sOptions.isSessionRecoveryEnabled() ?
+                k8s.getControllerReference(instance) : k8s.getOwnerReference(instance));
+        var selectorLabels = owner.getSelectorLabels();
+        k8s.watchPods(selectorLabels);
+        var terminator = new PodTerminator(k8s, selectorLabels, WorkerPodSpec.WORKER_LABEL,
+                k8sOptions.getWorkerDeletionConcurrency(), k8sOptions.getWorkerDeletionQueueSize(),
+                k8sOptions.getWorkerDeletionGracePeriod());
+        var videoCollector = new VideoCollector(k8s, terminator, k8sOptions.getVideosPath(),
+                k8sOptions.getVideoCollectionTimeout(), k8sOptions.getVideoChecksumAlgorithm(),
+                k8sOptions.getVideoCollectionConcurrency(), k8sOptions.getVideoCollectionQueueSize());
+        var clusterCapacity = k8sOptions.isCapacityAdmissionEnabled() ? Optional.of(k8s.watchClusterCapacity())
+                : Optional.<ClusterCapacity>empty();
+        var recovery = new SessionRecovery(k8s, owner, k8sOptions.isSessionRecoveryEnabled(),
+                k8sOptions.getSessionRecoveryInterval(), k8sOptions.getOrphanReaperGracePeriod());
+        var creationLimiter = new PodCreationLimiter(k8sOptions.getPodCreationMinConcurrency(),
+                k8sOptions.getPodCreationMaxConcurrency(), k8sOptions.getPodCreationStereotypeConcurrency(),
+                k8sOptions.getPodCreationLatencyTarget());
+        SlotGroupFactory slotGroupFactory = (options, k8sConfig) -> createSlotGroup(options, k8sConfig, tracer,
+                clientFactory, bus, k8s, terminator, owner, videoCollector, recovery, clusterCapacity, creationLimiter);
+        var slotGroups = createSlotGroups(k8sOptions, slotGroupFactory);
+        var reaper = new OrphanReaper(k8s, selectorLabels, terminator, k8sOptions.getOrphanReaperInterval(),
+                k8sOptions.getOrphanReaperGracePeriod());
 
         LOG.info("Creating kubernetes node");
 
-        return new KubernetesNode(tracer, bus, secretOptions.getRegistrationSecret(), new NodeId(UUID.randomUUID()),
-                serverOptions.getExternalUri(), factories, k8sOptions.getMaxSessions(), nodeOptions.isCdpEnabled(),
-                nodeOptions.isBiDiEnabled(), k8sOptions.getSessionTimeout(), k8sOptions.getHeartbeatPeriod());
+        var node = new KubernetesNode(tracer, bus, secretOptions.getRegistrationSecret(), new NodeId(UUID.randomUUID()),
+                serverOptions.getExternalUri(), slotGroups, videoCollector,
+                k8sOptions.getVideoCollectionShutdownTimeout(), terminator,
+                k8sOptions.getWorkerDeletionShutdownTimeout(), recovery, reaper, k8s.getMetrics(),
+                creationLimiter, k8sOptions.getShutdownConcurrency(), k8sOptions.getShutdownTimeout(),
+                k8sOptions.getMaxSessions(),
+                nodeOptions.isCdpEnabled(), nodeOptions.isBiDiEnabled(),
+                new SessionTimeoutPolicy(k8sOptions.getMinSessionTimeout(), k8sOptions.getSessionTimeout(),
+                        k8sOptions.getMaxSessionTimeout(), k8sOptions.getMaxSessionDuration()),
+                k8sOptions.getHeartbeatPeriod(), k8sOptions.getCapabilityMatchCacheSize());
+        k8sOptions.getConfigReloadPath().ifPresent(path -> new ConfigReloader(path, config,
+                k8sOptions.getConfigReloadInterval(), options -> node.reload(options, slotGroupFactory)).start());
+        return node;
     }
 
-    static List<SessionSlot> createFactories(KubernetesOptions k8sOptions, Tracer tracer,
-                                             HttpClient.Factory clientFactory, EventBus eventBus,
-                                             KubernetesDriver driver) {
+    static List<SlotGroup> createSlotGroups(KubernetesOptions k8sOptions, SlotGroupFactory slotGroupFactory) {
         var configs = k8sOptions.getConfigs();
         if (configs.isEmpty()) {
             throw new ConfigException("Unable to find kubernetes configs");
         }
-        return configs.stream().flatMap(c -> Collections.nCopies(k8sOptions.getMaxSessions(), c).stream())
-                .map(config -> {
-                    var image = config.getImage();
-                    var stereoType = config.getStereoType();
-                    var factory = new KubernetesSessionFactory(tracer, clientFactory, driver,
-                            k8sOptions.getWorkerStartupTimeout(), k8sOptions.getWorkerResourceRequests(),
-                            image, k8sOptions.getWorkerImagePullPolicy(), stereoType, k8sOptions.getVideoImage(),
-                            k8sOptions.getVideoStartupTimeout(), k8sOptions.getVideoImagePullPolicy(),
-                            k8sOptions.getVideosPath());
-                    return new SessionSlot(eventBus, stereoType, factory);
-                }).collect(Collectors.toList());
+        return configs.stream().map(config -> slotGroupFactory.create(k8sOptions, config))
+                .collect(Collectors.toList());
+    }
+
+    static SlotGroup createSlotGroup(KubernetesOptions k8sOptions, KubernetesOptions.Config config, Tracer tracer,
+                                     HttpClient.Factory clientFactory, EventBus eventBus, KubernetesDriver driver,
+                                     PodTerminator terminator, WorkerOwner owner, VideoCollector videoCollector,
+                                     SessionRecovery recovery, Optional<ClusterCapacity> clusterCapacity,
+                                     PodCreationLimiter creationLimiter) {
+        var factory = new KubernetesSessionFactory(tracer, clientFactory, driver, terminator, owner,
+                k8sOptions.getWorkerStartupTimeout(), k8sOptions.getWorkerReadinessCheck(),
+                k8sOptions.isWorkerFailFast(), k8sOptions.getWorkerResourceRequests(config),
+                k8sOptions.getWorkerShmSize(config), config.getImage(),
+                k8sOptions.getWorkerImagePullPolicy(config), config.getStereoType(),
+                k8sOptions.getVideoImage(config), k8sOptions.getVideoStartupTimeout(),
+                k8sOptions.getVideoImagePullPolicy(config), k8sOptions.getVideoSegmentDuration(config),
+                videoCollector, recovery, clusterCapacity, creationLimiter, k8sOptions.getWorkerPoolSettings());
+        // the distributor routes a request only to a free slot it already knows, and learns of new slots one
+        // heartbeat later at best, so each group keeps a fixed layout: its "max-sessions" setting when given, otherwise
+        // the global budget, which it can never exceed anyway
+        var maxSessions = Math.min(config.getMaxSessions().orElse(k8sOptions.getMaxSessions()),
+                k8sOptions.getMaxSessions());
+        return new SlotGroup(k8sOptions.getDefinition(config), factory, Stream.generate(() ->
+                        new SessionSlot(eventBus, factory.getStereotype(), factory))
+                .limit(maxSessions)
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Applies reloaded kubernetes configs. Groups whose definition is unchanged are kept as they are, new ones are
+     * added, and removed ones stop taking sessions and disappear once their running sessions end.
+     */
+    void reload(KubernetesOptions k8sOptions, SlotGroupFactory slotGroupFactory) {
+        var configs = k8sOptions.getConfigs();
+        if (configs.isEmpty()) {
+            LOG.warning("Ignoring reloaded configuration without kubernetes configs");
+            return;
+        }
+        int added = 0;
+        List<SlotGroup> retired;
+        synchronized (slotGroupsLock) {
+            var remaining = new ArrayList<>(slotGroups);
+            var active = new ArrayList<SlotGroup>();
+            for (var config : configs) {
+                var definition = k8sOptions.getDefinition(config);
+                var existing = remaining.stream().filter(g -> g.getDefinition().equals(definition)).findFirst();
+                if (existing.isPresent()) {
+                    remaining.remove(existing.get());
+                    active.add(existing.get());
+                    continue;
+                }
+                var group = slotGroupFactory.create(k8sOptions, config);
+                group.getSlots().forEach(slot -> {
+                    slotGroupsBySlotId.put(slot.getId(), group);
+                    statusSnapshot.released(slot);
+                });
+                group.getFactory().getWorkerPool().start();
+                active.add(group);
+                added++;
+            }
+            slotGroups = List.copyOf(active);
+            matchCache.update(slotGroups);
+            remaining.forEach(group -> group.retire().forEach(this::remove));
+            retired = remaining;
+        }
+        // closing a pool waits for its idle workers to be deleted, which must not hold up sessions meanwhile
+        retired.forEach(group -> group.getFactory().getWorkerPool().close());
+        var removed = retired.size();
+        LOG.info(String.format("Reloaded kubernetes configs: %d added, %d removed, %d unchanged", added, removed,
+                configs.size() - added));
+        if (added > 0 || removed > 0) {
+            // let the distributor pick up the new slots without waiting for the next heartbeat
+            bus.fire(new NodeHeartBeatEvent(getStatus()));
+        }
+    }
+
+    /**
+     * Recovers the sessions whose workers outlived the grid pod they were started by, or this grid pod's container.
+     * A grid pod being replaced lets go of its sessions only after its successor has started, so this keeps looking
+     * for them periodically.
+     */
+    public void recoverSessions(Consumer<Session> sessions) {
+        adoptSessions(true).forEach(sessions);
+        recovery.start(() -> adoptSessions(false).forEach(sessions));
+    }
+
+    private List<Session> adoptSessions(boolean includeOwn) {
+        var recovered = new ArrayList<Session>();
+        for (var pod : recovery.findAbandonedPods(includeOwn)) {
+            var podName = SessionRecovery.getPodName(pod);
+            try {
+                recovery.adopt(pod);
+            } catch (RuntimeException e) {
+                LOG.log(Level.WARNING, String.format("Unable to take over pod %s", podName), e);
+                continue;
+            }
+            if (!SessionRecovery.hasSession(pod) || recovery.isLost(pod)) {
+                LOG.warning(String.format("Deleting abandoned pod %s", podName));
+                recovery.settled(podName);
+                terminator.terminate(podName);
+                continue;
+            }
+            try {
+                var session = recoverSession(pod);
+                // otherwise the worker is not ready or no slot is free yet, so it is tried again on the next pass
+                if (session.isPresent()) {
+                    recovered.add(session.get());
+                    recovery.settled(podName);
+                }
+            } catch (RuntimeException e) {
+                LOG.log(Level.WARNING, String.format("Unable to recover session on pod %s, deleting it", podName), e);
+                recovery.settled(podName);
+                terminator.terminate(podName);
+            }
+        }
+        if (!recovered.isEmpty()) {
+            LOG.info(String.format("Recovered %d sessions", recovered.size()));
+        }
+        return recovered;
+    }
+
+    private Optional<Session> recoverSession(Pod pod) {
+        var stereotype = SessionRecovery.getStereotype(pod);
+        var requestedCapabilities = SessionRecovery.getRequestedCapabilities(pod);
+        // slot ids are regenerated on every start, so the session takes any free slot of its stereotype
+        var groups = matchCache.getMatchingGroups(requestedCapabilities).stream()
+                .filter(group -> group.getStereotype().asMap().equals(stereotype.asMap()))
+                .collect(Collectors.toList());
+        if (groups.isEmpty()) {
+            throw new IllegalStateException("No slots for stereotype " + stereotype);
+        }
+        if (!tryReserveSession()) {
+            return Optional.empty();
+        }
+        var slot = groups.stream()
+                .map(SlotGroup::reserve)
+                .flatMap(Optional::stream)
+                .findFirst();
+        if (slot.isEmpty()) {
+            reservedSessions.decrementAndGet();
+            return Optional.empty();
+        }
+        var slotToUse = slot.get();
+        statusSnapshot.reserved(slotToUse);
+        var possibleSession = slotToUse.apply(new CreateSessionRequest(
+                Set.of(SessionRecovery.getDownstreamDialect(pod)), requestedCapabilities,
+                Map.of(KubernetesSessionFactory.RECOVERED_POD_METADATA, pod)));
+        if (possibleSession.isLeft()) {
+            release(slotToUse);
+            return Optional.empty();
+        }
+        var session = possibleSession.right();
+        var elapsed = Duration.between(session.getStartTime(), Instant.now());
+        currentSessions.put(session.getId(), slotToUse, timeoutPolicy.getIdleTimeout(requestedCapabilities),
+                timeoutPolicy.getMaxDuration(requestedCapabilities).map(d -> d.minus(elapsed)));
+        var externalSession = createExternalSession(session, uri, slotToUse.isSupportingCdp(),
+                slotToUse.isSupportingBiDi(), requestedCapabilities);
+        statusSnapshot.started(slotToUse, externalSession);
+        return Optional.of(externalSession);
     }
 
     @Override
@@ -201,7 +408,7 @@ public class KubernetesNode extends Node {
             span.setAttribute("current.session.count", currentSessionCount);
             attributeMap.put("current.session.count", currentSessionCount);
 
-            if (getCurrentSessionCount() >= maxSessionCount) {
+            if (!tryReserveSession()) {
                 span.setAttribute("error", true);
                 span.setStatus(Status.RESOURCE_EXHAUSTED);
                 attributeMap.put("max.session.count", maxSessionCount);
@@ -210,18 +417,17 @@ public class KubernetesNode extends Node {
             }
 
             SessionSlot slotToUse = null;
-            synchronized (factories) {
-                for (var factory : factories) {
-                    if (!factory.isAvailable() || !factory.test(desiredCapabilities)) {
-                        continue;
-                    }
-                    factory.reserve();
-                    slotToUse = factory;
+            for (var group : matchCache.getMatchingGroups(desiredCapabilities)) {
+                var slot = group.reserve();
+                if (slot.isPresent()) {
+                    slotToUse = slot.get();
+                    statusSnapshot.reserved(slotToUse);
                     break;
                 }
             }
 
             if (slotToUse == null) {
+                reservedSessions.decrementAndGet();
                 span.setAttribute("error", true);
                 span.setStatus(Status.NOT_FOUND);
                 span.addEvent("No slot matched the requested capabilities. ", attributeMap);
@@ -232,7 +438,8 @@ public class KubernetesNode extends Node {
 
             if (possibleSession.isRight()) {
                 var session = possibleSession.right();
-                currentSessions.put(session.getId(), slotToUse);
+                currentSessions.put(session.getId(), slotToUse, timeoutPolicy.getIdleTimeout(desiredCapabilities),
+                        timeoutPolicy.getMaxDuration(desiredCapabilities));
 
                 SESSION_ID.accept(span, session.getId());
                 var caps = session.getCapabilities();
@@ -243,10 +450,11 @@ public class KubernetesNode extends Node {
 
                 var externalSession = createExternalSession(session, uri, slotToUse.isSupportingCdp(),
                         slotToUse.isSupportingBiDi(), desiredCapabilities);
+                statusSnapshot.started(slotToUse, externalSession);
                 return Either.right(new CreateSessionResponse(externalSession,
                         getEncoder(session.getDownstreamDialect()).apply(externalSession)));
             } else {
-                slotToUse.release();
+                release(slotToUse);
                 span.setAttribute("error", true);
                 span.addEvent("Unable to create session with the driver", attributeMap);
                 return Either.left(possibleSession.left());
@@ -287,23 +495,22 @@ public class KubernetesNode extends Node {
     @Override
     public void stop(SessionId id) throws NoSuchSessionException {
         getSessionSlot(id);
-        currentSessions.invalidate(id);
+        currentSessions.remove(id);
     }
 
     @Override
     public boolean isSessionOwner(SessionId id) {
-        return currentSessions.getIfPresent(id) != null;
+        return currentSessions.contains(id);
     }
 
     @Override
     public boolean isSupporting(Capabilities capabilities) {
-        return factories.parallelStream().anyMatch(factory -> factory.test(capabilities));
+        return !matchCache.getMatchingGroups(capabilities).isEmpty();
     }
 
     @Override
     public NodeStatus getStatus() {
-        return new NodeStatus(getId(), uri, maxSessionCount, getSlots(), isDraining() ? DRAINING : UP, heartbeatPeriod,
-                getNodeVersion(), getOsInfo());
+        return statusSnapshot.get(isDraining() ? DRAINING : UP);
     }
 
     @Override
@@ -333,18 +540,316 @@ public class KubernetesNode extends Node {
 
     @ManagedAttribute(name = "CurrentSessions")
     public int getCurrentSessionCount() {
-        return Math.toIntExact(currentSessions.size());
+        return currentSessions.size();
+    }
+
+    @ManagedAttribute(name = "StatusVersion")
+    public long getStatusVersion() {
+        return statusSnapshot.getVersion();
+    }
+
+    @ManagedAttribute(name = "CapabilityMatchCacheHits")
+    public long getCapabilityMatchCacheHits() {
+        return matchCache.getHitCount();
+    }
+
+    @ManagedAttribute(name = "CapabilityMatchCacheMisses")
+    public long getCapabilityMatchCacheMisses() {
+        return matchCache.getMissCount();
+    }
+
+    @ManagedAttribute(name = "CapabilityMatchCacheHitRate")
+    public double getCapabilityMatchCacheHitRate() {
+        return matchCache.getHitRate();
+    }
+
+    @ManagedAttribute(name = "WorkerPoolHits")
+    public long getWorkerPoolHits() {
+        return getWorkerPools().stream().mapToLong(WorkerPool::getHits).sum();
+    }
+
+    @ManagedAttribute(name = "WorkerPoolMisses")
+    public long getWorkerPoolMisses() {
+        return getWorkerPools().stream().mapToLong(WorkerPool::getMisses).sum();
+    }
+
+    @ManagedAttribute(name = "WorkerPoolIdleWorkers")
+    public int getWorkerPoolIdleCount() {
+        return getWorkerPools().stream().mapToInt(WorkerPool::getIdleCount).sum();
+    }
+
+    @ManagedAttribute(name = "WorkerPoolAverageRefillMillis")
+    public long getWorkerPoolAverageRefillMillis() {
+        var refills = getWorkerPools().stream().mapToLong(WorkerPool::getRefillCount).sum();
+        return refills == 0 ? 0 : getWorkerPools().stream().mapToLong(WorkerPool::getRefillMillis).sum() / refills;
+    }
+
+    @ManagedAttribute(name = "WorkerPoolRecycledWorkers")
+    public long getWorkerPoolRecycledCount() {
+        return getWorkerPools().stream().mapToLong(WorkerPool::getRecycledCount).sum();
+    }
+
+    @ManagedAttribute(name = "KubernetesApiRequests")
+    public long getKubernetesApiRequestCount() {
+        return apiMetrics.getRequestCount();
+    }
+
+    @ManagedAttribute(name = "KubernetesApiErrors")
+    public long getKubernetesApiErrorCount() {
+        return apiMetrics.getErrorCount();
+    }
+
+    @ManagedAttribute(name = "KubernetesApiThrottledMillis")
+    public long getKubernetesApiThrottledMillis() {
+        return apiMetrics.getThrottledMillis();
+    }
+
+    @ManagedAttribute(name = "KubernetesApiLatency")
+    public Map<String, String> getKubernetesApiLatency() {
+        return apiMetrics.getSummary();
+    }
+
+    @ManagedAttribute(name = "PodCreationLimit")
+    public int getPodCreationLimit() {
+        return creationLimiter.getLimit();
+    }
+
+    @ManagedAttribute(name = "PodCreationsInFlight")
+    public int getPodCreationsInFlight() {
+        return creationLimiter.getInFlight();
+    }
+
+    @ManagedAttribute(name = "PodCreationsWaiting")
+    public int getPodCreationsWaiting() {
+        return creationLimiter.getWaiting();
+    }
+
+    @ManagedAttribute(name = "PodCreationLimitDecreases")
+    public long getPodCreationLimitDecreaseCount() {
+        return creationLimiter.getDecreaseCount();
+    }
+
+    @ManagedAttribute(name = "OrphanedPods")
+    public int getOrphanedPodCount() {
+        return reaper.getOrphanCount();
+    }
+
+    @ManagedAttribute(name = "ReapedPods")
+    public long getReapedPodCount() {
+        return reaper.getReapedCount();
+    }
+
+    @ManagedAttribute(name = "ReapedCpuMillis")
+    public long getReapedCpuMillis() {
+        return reaper.getReapedCpuMillis();
+    }
+
+    @ManagedAttribute(name = "ReapedMemoryBytes")
+    public long getReapedMemoryBytes() {
+        return reaper.getReapedMemoryBytes();
+    }
+
+    @ManagedAttribute(name = "VideoCollectionBacklog")
+    public int getVideoCollectionBacklog() {
+        return videoCollector.getBacklog();
+    }
+
+    @ManagedAttribute(name = "CollectedVideos")
+    public long getCollectedVideoCount() {
+        return videoCollector.getCollectedCount();
+    }
+
+    @ManagedAttribute(name = "FailedVideoCollections")
+    public long getFailedVideoCollectionCount() {
+        return videoCollector.getFailedCount();
+    }
+
+    @ManagedAttribute(name = "VideoCopyBytesPerSecond")
+    public long getVideoCopyBytesPerSecond() {
+        return videoCollector.getBytesPerSecond();
+    }
+
+    @ManagedAttribute(name = "PodDeletionQueueSize")
+    public int getPodDeletionQueueSize() {
+        return terminator.getQueueSize();
+    }
+
+    @ManagedAttribute(name = "DeletedPods")
+    public long getDeletedPodCount() {
+        return terminator.getDeletedCount();
+    }
+
+    @ManagedAttribute(name = "FailedPodDeletions")
+    public long getFailedPodDeletionCount() {
+        return terminator.getFailedCount();
+    }
+
+    @ManagedAttribute(name = "PodDeletionAverageMillis")
+    public long getPodDeletionAverageMillis() {
+        return terminator.getAverageDeletionMillis();
     }
 
     HttpResponse executeWorkerRequest(SessionId id, HttpRequest req) {
         return getSessionSlot(id).getSession().execute(req);
     }
 
-    private void stopAllSessions() {
-        if (currentSessions.size() > 0) {
-            LOG.info("Trying to stop all running sessions before shutting down...");
-            currentSessions.invalidateAll();
+    private void shutdown(int concurrency, Duration timeout, Duration videoCollectorTimeout,
+                          Duration terminatorTimeout) {
+        var started = System.nanoTime();
+        var deadline = started + timeout.toNanos();
+        reaper.close();
+        var handedOver = handOverSessions(concurrency, deadline);
+        var sessionIds = currentSessions.getSessionIds();
+        var stopped = stopAllSessions(sessionIds, concurrency, deadline);
+        closeWorkerPools(concurrency, deadline);
+        var videosCollected = videoCollector.close(min(videoCollectorTimeout, deadline));
+        var podsDeleted = terminator.close(min(terminatorTimeout, deadline));
+        var forceDeleted = 0;
+        if (stopped < sessionIds.size() || !videosCollected || !podsDeleted) {
+            // whatever is left would outlive the node, so remove it by label without waiting for graceful termination
+            forceDeleted = terminator.forceDeleteAll();
         }
+        LOG.info(String.format("Shut down in %d ms: handed over %d sessions, stopped %d of %d sessions, %d pods "
+                        + "deleted, %d videos collected, %d pods force deleted",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), handedOver, stopped, sessionIds.size(),
+                terminator.getDeletedCount(), videoCollector.getCollectedCount(), forceDeleted));
+    }
+
+    private int handOverSessions(int concurrency, long deadline) {
+        if (!recovery.isEnabled()) {
+            return 0;
+        }
+        recovery.close(min(RECORDING_SHUTDOWN_TIMEOUT, deadline));
+        List<Pod> recorded;
+        try {
+            recorded = recovery.findSessionPods();
+        } catch (RuntimeException e) {
+            LOG.log(Level.WARNING, "Unable to find recorded sessions, none will be handed over", e);
+            return 0;
+        }
+        LOG.info(String.format("Leaving %d recorded sessions running for the next grid pod...", recorded.size()));
+        var unrecovered = recovery.getUnrecoveredPodNames();
+        // the owner label goes first, so that a session is either left running and unowned or stopped as usual
+        return runAll(recorded.stream().<Callable<Void>>map(pod -> () -> {
+            var id = SessionRecovery.getSessionId(pod);
+            var podName = SessionRecovery.getPodName(pod);
+            var session = currentSessions.get(id).map(SessionSlot::getSession)
+                    .filter(KubernetesSession.class::isInstance).map(KubernetesSession.class::cast)
+                    .filter(s -> s.getPodName().equals(podName));
+            if (session.isEmpty() && !unrecovered.contains(podName)) {
+                throw new NoSuchSessionException("Session is not running: " + id);
+            }
+            recovery.release(podName);
+            session.ifPresent(s -> {
+                s.handOver();
+                currentSessions.remove(id);
+            });
+            return null;
+        }).collect(Collectors.toList()), concurrency, deadline);
+    }
+
+    private int stopAllSessions(List<SessionId> sessionIds, int concurrency, long deadline) {
+        if (sessionIds.isEmpty()) {
+            return 0;
+        }
+        LOG.info(String.format("Trying to stop %d running sessions before shutting down...", sessionIds.size()));
+        return runAll(sessionIds.stream().<Callable<Void>>map(id -> () -> {
+            currentSessions.remove(id);
+            return null;
+        }).collect(Collectors.toList()), concurrency, deadline);
+    }
+
+    private void closeWorkerPools(int concurrency, long deadline) {
+        // each pool may wait for its recycling workers, so close them side by side within what is left of the deadline
+        var pools = getWorkerPools();
+        var closed = runAll(pools.stream().<Callable<Void>>map(pool -> () -> {
+            pool.close(remaining(deadline));
+            return null;
+        }).collect(Collectors.toList()), concurrency, deadline);
+        if (closed < pools.size()) {
+            LOG.warning(String.format("Closed %d of %d worker pools before the shutdown deadline", closed,
+                    pools.size()));
+        }
+    }
+
+    private static int runAll(List<Callable<Void>> tasks, int concurrency, long deadline) {
+        if (tasks.isEmpty()) {
+            return 0;
+        }
+        var executor = Executors.newFixedThreadPool(Math.min(concurrency, tasks.size()), r -> {
+            var thread = new Thread(r);
+            thread.setDaemon(true);
+            thread.setName("Kubernetes Node - Shutdown");
+            return thread;
+        });
+        try {
+            var futures = executor.invokeAll(tasks, Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+            return Math.toIntExact(futures.stream().filter(f -> {
+                try {
+                    f.get();
+                    return true;
+                } catch (Exception e) {
+                    return false;
+                }
+            }).count());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Duration min(Duration timeout, long deadline) {
+        var remaining = remaining(deadline);
+        return timeout.compareTo(remaining) < 0 ? timeout : remaining;
+    }
+
+    private static Duration remaining(long deadline) {
+        return Duration.ofNanos(Math.max(deadline - System.nanoTime(), 0));
+    }
+
+    private Set<PodName> getLivePodNames() {
+        var podNames = new HashSet<PodName>();
+        currentSessions.getSlots().stream().map(SessionSlot::getSession)
+                .filter(KubernetesSession.class::isInstance)
+                .map(session -> ((KubernetesSession) session).getPodName())
+                .forEach(podNames::add);
+        getWorkerPools().forEach(pool -> podNames.addAll(pool.getIdlePodNames()));
+        podNames.addAll(videoCollector.getCollectingPodNames());
+        podNames.addAll(recovery.getUnrecoveredPodNames());
+        return podNames;
+    }
+
+    private boolean tryReserveSession() {
+        int reserved;
+        do {
+            reserved = reservedSessions.get();
+            if (reserved >= maxSessionCount) {
+                return false;
+            }
+        } while (!reservedSessions.compareAndSet(reserved, reserved + 1));
+        return true;
+    }
+
+    private List<WorkerPool> getWorkerPools() {
+        return slotGroups.stream().map(g -> g.getFactory().getWorkerPool()).collect(Collectors.toList());
+    }
+
+    private void release(SessionSlot slot) {
+        // a slot in use is never removed from the index, and the status shows it free before it can be reserved again
+        // or dropped by a concurrent reload, so no lock is needed
+        var group = slotGroupsBySlotId.get(slot.getId());
+        statusSnapshot.released(slot);
+        if (!group.release(slot)) {
+            remove(slot);
+        }
+        reservedSessions.decrementAndGet();
+    }
+
+    private void remove(SessionSlot slot) {
+        slotGroupsBySlotId.remove(slot.getId());
+        statusSnapshot.removed(slot);
     }
 
     private Session createExternalSession(ActiveSession other, URI externalUri, boolean isSupportingCdp,
@@ -396,22 +901,13 @@ public class KubernetesNode extends Node {
     }
 
     private SessionSlot getSessionSlot(SessionId id) {
-        return Optional.ofNullable(currentSessions.getIfPresent(id))
+        return currentSessions.get(id)
                 .orElseThrow(() -> new NoSuchSessionException("Cannot find session with id: " + id));
     }
 
-    private Set<Slot> getSlots() {
-        return factories.stream().map(factory ->
-                        factory.isAvailable() ? toAvailableSlot(factory) : toUnavailableSlot(factory))
-                .collect(Collectors.toUnmodifiableSet());
-    }
-
-    private Slot toAvailableSlot(SessionSlot slot) {
-        return new Slot(new SlotId(getId(), slot.getId()), slot.getStereotype(), Instant.EPOCH, null);
-    }
+    @FunctionalInterface
+    interface SlotGroupFactory {
 
-    private Slot toUnavailableSlot(SessionSlot slot) {
-        return new Slot(new SlotId(getId(), slot.getId()), slot.getStereotype(), Optional.ofNullable(slot.getSession())
-                .map(ActiveSession::getStartTime).orElse(Instant.EPOCH), null);
+        SlotGroup create(KubernetesOptions k8sOptions, KubernetesOptions.Config config);
     }
 }
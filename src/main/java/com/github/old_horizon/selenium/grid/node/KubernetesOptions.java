@@ -2,23 +2,32 @@ package com.github.old_horizon.selenium.grid.node;
 
 import com.github.old_horizon.selenium.k8s.DockerImage;
 import com.github.old_horizon.selenium.k8s.ImagePullPolicy;
-import com.google.common.collect.Iterables;
+import com.google.common.collect.Iterators;
 import org.openqa.selenium.Capabilities;
+import org.openqa.selenium.grid.config.ConfigException;
 import org.openqa.selenium.json.Json;
 
 import java.nio.file.Path;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
+import java.util.TreeMap;
 
 public class KubernetesOptions {
 
     private static final String SECTION_NAME = "kubernetes";
     private static final String DEFAULT_VIDEO_IMAGE = "selenium/video:latest";
     private static final int DEFAULT_MAX_SESSIONS = Runtime.getRuntime().availableProcessors();
+    // the options a slot group is built from; the others are read once at startup or are not tied to a group
+    private static final List<String> GROUP_OPTIONS = List.of("max-sessions", "worker-startup-timeout",
+            "worker-readiness-check", "worker-fail-fast", "worker-cpu-request", "worker-cpu-limit",
+            "worker-memory-request", "worker-memory-limit", "worker-shm-size", "worker-image-pull-policy",
+            "worker-pool-min-idle", "worker-pool-max-idle", "worker-pool-ttl", "worker-recycle",
+            "worker-recycle-max-reuse", "worker-recycle-max-age", "video-image", "video-startup-timeout",
+            "video-image-pull-policy", "video-segment-duration");
     private static final Json JSON = new Json();
 
     private final org.openqa.selenium.grid.config.Config config;
@@ -28,19 +37,54 @@ public class KubernetesOptions {
     }
 
     public List<Config> getConfigs() {
-        return getAll("configs")
-                .map(configs -> StreamSupport.stream(Iterables.partition(configs, 2).spliterator(), false)
-                        .map(config -> {
-                            var image = new DockerImage(config.get(0));
-                            Capabilities stereoType = JSON.toType(config.get(1), Capabilities.class);
-                            return new Config(image, stereoType);
-                        }).collect(Collectors.toList())).orElse(Collections.emptyList());
+        return getAll("configs").map(this::parseConfigs).orElse(Collections.emptyList());
+    }
+
+    List<Config> parseConfigs(List<String> values) {
+        // each entry is an image followed by its stereotype and, optionally, a JSON object of per-config settings
+        var configs = new ArrayList<Config>();
+        var iterator = Iterators.peekingIterator(values.iterator());
+        while (iterator.hasNext()) {
+            var image = new DockerImage(iterator.next());
+            if (!iterator.hasNext()) {
+                throw new ConfigException("Missing stereotype for kubernetes config: " + image);
+            }
+            Capabilities stereoType = JSON.toType(iterator.next(), Capabilities.class);
+            Map<String, Object> settings = iterator.hasNext() && iterator.peek().trim().startsWith("{") ?
+                    JSON.toType(iterator.next(), Json.MAP_TYPE) : Collections.emptyMap();
+            configs.add(new Config(image, stereoType, settings));
+        }
+        return configs;
+    }
+
+    String getDefinition(Config config) {
+        // everything a slot group is built from, so that unchanged groups can be kept across reloads
+        var options = new TreeMap<String, Object>();
+        GROUP_OPTIONS.forEach(option -> getAll(option).ifPresent(values -> options.put(option, values)));
+        var definition = new TreeMap<String, Object>();
+        definition.put("image", config.getImage().getValue());
+        definition.put("stereotype", new TreeMap<>(config.getStereoType().asMap()));
+        definition.put("settings", new TreeMap<>(config.settings));
+        definition.put("options", options);
+        return JSON.toJson(definition);
+    }
+
+    public Optional<Path> getConfigReloadPath() {
+        return get("config-reload-path").map(Path::of);
+    }
+
+    public Duration getConfigReloadInterval() {
+        return Duration.ofSeconds(Math.max(getInt("config-reload-interval").orElse(10), 1));
     }
 
     public DockerImage getVideoImage() {
         return new DockerImage(get("video-image").orElse(DEFAULT_VIDEO_IMAGE));
     }
 
+    public DockerImage getVideoImage(Config config) {
+        return config.getString("video-image").map(DockerImage::new).orElseGet(this::getVideoImage);
+    }
+
     public Duration getVideoStartupTimeout() {
         return getInt("video-startup-timeout").map(Duration::ofSeconds).orElseGet(() -> Duration.ofMinutes(1));
     }
@@ -53,14 +97,54 @@ public class KubernetesOptions {
         }
     }
 
+    public ImagePullPolicy getVideoImagePullPolicy(Config config) {
+        return config.getImagePullPolicy("video-image-pull-policy").orElseGet(this::getVideoImagePullPolicy);
+    }
+
     public Optional<Path> getVideosPath() {
         return get("videos-path").map(Path::of);
     }
 
+    public Optional<Duration> getVideoSegmentDuration() {
+        return getInt("video-segment-duration").filter(v -> v > 0).map(Duration::ofSeconds);
+    }
+
+    public Optional<Duration> getVideoSegmentDuration(Config config) {
+        var segmentDuration = config.getNumber("video-segment-duration");
+        return segmentDuration.isPresent() ?
+                segmentDuration.map(Number::intValue).filter(v -> v > 0).map(Duration::ofSeconds) :
+                getVideoSegmentDuration();
+    }
+
+    public Duration getVideoCollectionTimeout() {
+        return getInt("video-collection-timeout").map(Duration::ofSeconds).orElseGet(() -> Duration.ofMinutes(5));
+    }
+
+    public Optional<String> getVideoChecksumAlgorithm() {
+        return get("video-checksum-algorithm");
+    }
+
+    public int getVideoCollectionConcurrency() {
+        return Math.max(getInt("video-collection-concurrency").orElse(4), 1);
+    }
+
+    public int getVideoCollectionQueueSize() {
+        return Math.max(getInt("video-collection-queue-size").orElse(100), 1);
+    }
+
+    public Duration getVideoCollectionShutdownTimeout() {
+        return getInt("video-collection-shutdown-timeout").map(Duration::ofSeconds)
+                .orElseGet(() -> Duration.ofMinutes(1));
+    }
+
     public int getMaxSessions() {
         return getInt("max-sessions").orElse(DEFAULT_MAX_SESSIONS);
     }
 
+    public int getCapabilityMatchCacheSize() {
+        return Math.max(getInt("capability-match-cache-size").orElse(1000), 1);
+    }
+
     public Duration getWorkerStartupTimeout() {
         return getInt("worker-startup-timeout").map(Duration::ofSeconds).orElseGet(() -> Duration.ofMinutes(1));
     }
@@ -73,16 +157,150 @@ public class KubernetesOptions {
         }
     }
 
+    public ImagePullPolicy getWorkerImagePullPolicy(Config config) {
+        return config.getImagePullPolicy("image-pull-policy").orElseGet(this::getWorkerImagePullPolicy);
+    }
+
+    public ReadinessCheck getWorkerReadinessCheck() {
+        try {
+            return get("worker-readiness-check").map(ReadinessCheck::valueOf).orElse(ReadinessCheck.Probe);
+        } catch (Exception e) {
+            return ReadinessCheck.Probe;
+        }
+    }
+
+    public boolean isWorkerFailFast() {
+        return config.getBool(SECTION_NAME, "worker-fail-fast").orElse(true);
+    }
+
     public WorkerResourceRequests getWorkerResourceRequests() {
         return new WorkerResourceRequests(get("worker-cpu-request"), get("worker-cpu-limit"),
                 get("worker-memory-request"), get("worker-memory-limit"));
     }
 
+    public WorkerResourceRequests getWorkerResourceRequests(Config config) {
+        return new WorkerResourceRequests(
+                config.getString("cpu-request").or(() -> get("worker-cpu-request")),
+                config.getString("cpu-limit").or(() -> get("worker-cpu-limit")),
+                config.getString("memory-request").or(() -> get("worker-memory-request")),
+                config.getString("memory-limit").or(() -> get("worker-memory-limit")));
+    }
+
+    public Optional<String> getWorkerShmSize() {
+        return get("worker-shm-size");
+    }
+
+    public Optional<String> getWorkerShmSize(Config config) {
+        return config.getString("shm-size").or(this::getWorkerShmSize);
+    }
+
+    public WorkerPoolSettings getWorkerPoolSettings() {
+        var minIdle = Math.max(getInt("worker-pool-min-idle").orElse(0), 0);
+        var recycle = config.getBool(SECTION_NAME, "worker-recycle").orElse(false);
+        // recycled workers are kept in the pool, so give them room unless the pool size is set explicitly
+        var maxIdle = Math.max(getInt("worker-pool-max-idle").orElse(recycle ? getMaxSessions() : minIdle), minIdle);
+        var ttl = getInt("worker-pool-ttl").map(Duration::ofSeconds).orElseGet(() -> Duration.ofMinutes(10));
+        var maxReuse = Math.max(getInt("worker-recycle-max-reuse").orElse(10), 0);
+        var maxAge = getInt("worker-recycle-max-age").map(Duration::ofSeconds).orElseGet(() -> Duration.ofMinutes(30));
+        return new WorkerPoolSettings(minIdle, maxIdle, ttl, recycle, maxReuse, maxAge);
+    }
+
+    public Optional<Duration> getWorkerDeletionGracePeriod() {
+        return getInt("worker-deletion-grace-period").map(Duration::ofSeconds);
+    }
+
+    public int getWorkerDeletionConcurrency() {
+        return Math.max(getInt("worker-deletion-concurrency").orElse(4), 1);
+    }
+
+    public int getWorkerDeletionQueueSize() {
+        return Math.max(getInt("worker-deletion-queue-size").orElse(1000), 1);
+    }
+
+    public Duration getWorkerDeletionShutdownTimeout() {
+        return getInt("worker-deletion-shutdown-timeout").map(Duration::ofSeconds)
+                .orElseGet(() -> Duration.ofSeconds(20));
+    }
+
+    public ApiClientSettings getApiClientSettings() {
+        var maxConcurrentRequests = Math.max(getInt("api-max-concurrent-requests").orElse(64), 1);
+        var maxConcurrentRequestsPerHost = Math.max(getInt("api-max-concurrent-requests-per-host")
+                .orElse(maxConcurrentRequests), 1);
+        var connectionTimeout = Duration.ofSeconds(Math.max(getInt("api-connection-timeout").orElse(10), 1));
+        var requestTimeout = Duration.ofSeconds(Math.max(getInt("api-request-timeout").orElse(10), 1));
+        var http2Enabled = config.getBool(SECTION_NAME, "api-http2").orElse(true);
+        var qps = Math.max(getInt("api-qps").orElse(50), 0);
+        var burst = Math.max(getInt("api-burst").orElse(qps * 2), 1);
+        return new ApiClientSettings(maxConcurrentRequests, maxConcurrentRequestsPerHost, connectionTimeout,
+                requestTimeout, http2Enabled, qps, burst);
+    }
+
+    public int getPodCreationMaxConcurrency() {
+        return Math.max(getInt("pod-creation-max-concurrency").orElse(16), 1);
+    }
+
+    public int getPodCreationMinConcurrency() {
+        return Math.min(Math.max(getInt("pod-creation-min-concurrency").orElse(1), 1),
+                getPodCreationMaxConcurrency());
+    }
+
+    public int getPodCreationStereotypeConcurrency() {
+        return Math.max(getInt("pod-creation-stereotype-concurrency").orElse(getPodCreationMaxConcurrency()), 1);
+    }
+
+    public Duration getPodCreationLatencyTarget() {
+        return Duration.ofMillis(Math.max(getInt("pod-creation-latency-target-ms").orElse(1000), 1));
+    }
+
+    public boolean isCapacityAdmissionEnabled() {
+        return config.getBool(SECTION_NAME, "capacity-admission").orElse(false);
+    }
+
+    public Duration getOrphanReaperInterval() {
+        return getInt("orphan-reaper-interval").map(Duration::ofSeconds).orElseGet(() -> Duration.ofMinutes(1));
+    }
+
+    public Duration getOrphanReaperGracePeriod() {
+        return getInt("orphan-reaper-grace-period").map(Duration::ofSeconds).orElseGet(() -> Duration.ofMinutes(5));
+    }
+
+    public int getShutdownConcurrency() {
+        return Math.max(getInt("shutdown-concurrency").orElse(16), 1);
+    }
+
+    public Duration getShutdownTimeout() {
+        return getInt("shutdown-timeout").map(Duration::ofSeconds).orElseGet(() -> Duration.ofSeconds(90));
+    }
+
+    public boolean isSessionRecoveryEnabled() {
+        return config.getBool(SECTION_NAME, "session-recovery").orElse(false);
+    }
+
+    public Duration getSessionRecoveryInterval() {
+        return Duration.ofSeconds(Math.max(getInt("session-recovery-interval").orElse(10), 1));
+    }
+
+    public Duration getMinSessionTimeout() {
+        return Duration.ofSeconds(Math.max(getInt("min-session-timeout").orElse(10), 1));
+    }
+
     public Duration getSessionTimeout() {
-        var seconds = Math.max(getInt("session-timeout").orElse(300), 10);
+        var seconds = Math.max(getInt("session-timeout").orElse(300), getMinSessionTimeout().toSeconds());
         return Duration.ofSeconds(seconds);
     }
 
+    public Duration getMaxSessionTimeout() {
+        var sessionTimeout = getSessionTimeout();
+        return getInt("max-session-timeout").map(Duration::ofSeconds).filter(d -> d.compareTo(sessionTimeout) > 0)
+                .orElse(sessionTimeout);
+    }
+
+    public Optional<Duration> getMaxSessionDuration() {
+        var minTimeout = getMinSessionTimeout();
+        return getInt("max-session-duration").filter(v -> v > 0).map(Duration::ofSeconds)
+                .map(d -> d.compareTo(minTimeout) < 0 ? minTimeout : d);
+    }
+
     public Duration getHeartbeatPeriod() {
         var seconds = Math.max(getInt("heartbeat-period").orElse(60), 1);
         return Duration.ofSeconds(seconds);
@@ -104,10 +322,16 @@ public class KubernetesOptions {
 
         private final DockerImage image;
         private final Capabilities stereoType;
+        private final Map<String, Object> settings;
 
         public Config(DockerImage image, Capabilities stereoType) {
+            this(image, stereoType, Collections.emptyMap());
+        }
+
+        public Config(DockerImage image, Capabilities stereoType, Map<String, Object> settings) {
             this.image = image;
             this.stereoType = stereoType;
+            this.settings = Map.copyOf(settings);
         }
 
         public DockerImage getImage() {
@@ -117,6 +341,26 @@ public class KubernetesOptions {
         public Capabilities getStereoType() {
             return stereoType;
         }
+
+        public Optional<Integer> getMaxSessions() {
+            return getNumber("max-sessions").map(Number::intValue).filter(v -> v > 0);
+        }
+
+        Optional<Number> getNumber(String key) {
+            return Optional.ofNullable(settings.get(key)).filter(Number.class::isInstance).map(Number.class::cast);
+        }
+
+        Optional<String> getString(String key) {
+            return Optional.ofNullable(settings.get(key)).map(Object::toString);
+        }
+
+        Optional<ImagePullPolicy> getImagePullPolicy(String key) {
+            try {
+                return getString(key).map(ImagePullPolicy::valueOf);
+            } catch (Exception e) {
+                return Optional.empty();
+            }
+        }
     }
 
 }
@@ -1,65 +1,114 @@
 package com.github.old_horizon.selenium.grid.node;
 
-import com.github.old_horizon.selenium.k8s.KubernetesDriver;
 import com.github.old_horizon.selenium.k8s.PodName;
-import dev.failsafe.Failsafe;
-import dev.failsafe.RetryPolicy;
+import com.github.old_horizon.selenium.k8s.PodTerminator;
 import org.openqa.selenium.Capabilities;
 import org.openqa.selenium.grid.node.DefaultActiveSession;
+import org.openqa.selenium.json.Json;
 import org.openqa.selenium.remote.Dialect;
 import org.openqa.selenium.remote.SessionId;
 import org.openqa.selenium.remote.http.HttpClient;
+import org.openqa.selenium.remote.http.HttpRequest;
+import org.openqa.selenium.remote.http.HttpResponse;
 import org.openqa.selenium.remote.tracing.Tracer;
 
 import java.net.URL;
-import java.nio.file.Path;
-import java.time.Duration;
 import java.time.Instant;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.logging.Logger;
+
+import static org.openqa.selenium.remote.http.Contents.string;
 
 public class KubernetesSession extends DefaultActiveSession {
 
-    private final Optional<Path> videosPath;
-    private final KubernetesDriver k8s;
+    private static final Logger LOG = Logger.getLogger(KubernetesSession.class.getName());
+    private static final Json JSON = new Json();
+    // what drivers answer once the browser behind the session has crashed or gone away; other errors, including
+    // most "unknown error"s, are failures of the command itself and leave the worker reusable
+    private static final Set<String> CRASH_ERRORS = Set.of("invalid session id", "session not created");
+    private static final List<String> CRASH_MESSAGES = List.of("session deleted", "not reachable", "tab crashed",
+            "connection refused");
+
+    private final VideoCollector videoCollector;
+    private final PodTerminator terminator;
     private final PodName podName;
     private final WorkerPodSpec podSpec;
+    private final Optional<Worker> worker;
+    private final Predicate<Worker> recycler;
+    private volatile boolean tainted;
+    private volatile boolean handedOver;
 
     protected KubernetesSession(Tracer tracer, HttpClient client, SessionId id, URL url, Dialect downstream,
                                 Dialect upstream, Capabilities stereotype, Capabilities capabilities,
-                                Instant startTime, Optional<Path> videosPath, KubernetesDriver k8s, PodName podName,
-                                WorkerPodSpec podSpec) {
+                                Instant startTime, VideoCollector videoCollector, PodTerminator terminator,
+                                PodName podName, WorkerPodSpec podSpec, Optional<Worker> worker,
+                                Predicate<Worker> recycler) {
         super(tracer, client, id, url, downstream, upstream, stereotype, capabilities, startTime);
-        this.videosPath = videosPath;
-        this.k8s = k8s;
+        this.videoCollector = videoCollector;
+        this.terminator = terminator;
         this.podName = podName;
         this.podSpec = podSpec;
+        this.worker = worker;
+        this.recycler = recycler;
+    }
+
+    PodName getPodName() {
+        return podName;
     }
 
     @Override
-    public void stop() {
+    public HttpResponse execute(HttpRequest req) {
+        HttpResponse response;
         try {
-            if (videosPath.isPresent() && podSpec instanceof WorkerPodSpec.VideoRecording) {
-                copyRecordedVideo(podName, (WorkerPodSpec.VideoRecording) podSpec, getId());
-            }
-        } finally {
-            k8s.deletePod(podName);
+            response = super.execute(req);
+        } catch (RuntimeException e) {
+            tainted = true;
+            throw e;
+        }
+        if (!tainted && response.getStatus() >= 400 && isCrashed(response)) {
+            tainted = true;
         }
+        return response;
     }
 
-    void copyRecordedVideo(PodName podName, WorkerPodSpec.VideoRecording spec, SessionId sessionId) {
-        k8s.executeCommand(podName, spec.getVideoContainerName(), new String[]{"pkill", "-SIGINT", "ffmpeg"});
-
-        var retryPolicy = RetryPolicy.<String>builder()
-                .withMaxRetries(-1)
-                .withMaxDuration(Duration.ofMinutes(1))
-                .withDelay(Duration.ofMillis(500))
-                .handleResultIf(v -> !v.trim().isEmpty())
-                .build();
+    /**
+     * Leaves the worker running when the session is stopped, for the next grid pod to recover the session.
+     */
+    void handOver() {
+        handedOver = true;
+    }
 
-        Failsafe.with(retryPolicy).get(() ->
-                k8s.executeCommand(podName, spec.getVideoContainerName(), new String[]{"pgrep", "ffmpeg"}));
+    @Override
+    public void stop() {
+        if (handedOver) {
+            LOG.fine(String.format("Handing over session %s (pod: %s)", getId(), podName));
+        } else if (videoCollector.isEnabled() && podSpec instanceof WorkerPodSpec.VideoRecording) {
+            videoCollector.collect(podName, (WorkerPodSpec.VideoRecording) podSpec, getId());
+        } else if (!tainted && worker.map(recycler::test).orElse(false)) {
+            LOG.fine(String.format("Recycling worker of session %s (pod: %s)", getId(), podName));
+        } else {
+            terminator.terminate(podName);
+        }
+    }
 
-        k8s.copyFile(podName, spec.getWorkerContainerName(), spec.getVideosPath().resolve("video.mp4"),
-                videosPath.get().resolve(sessionId.toString() + ".mp4"));
+    private boolean isCrashed(HttpResponse response) {
+        Object value;
+        try {
+            value = JSON.<Map<String, Object>>toType(string(response), Json.MAP_TYPE).get("value");
+        } catch (RuntimeException e) {
+            // not a WebDriver error, e.g. a proxy in between answering on the driver's behalf
+            return false;
+        }
+        if (!(value instanceof Map)) {
+            return false;
+        }
+        var error = ((Map<?, ?>) value).get("error");
+        var message = String.valueOf(((Map<?, ?>) value).get("message")).toLowerCase(Locale.ROOT);
+        return CRASH_ERRORS.contains(error) || CRASH_MESSAGES.stream().anyMatch(message::contains);
     }
 }
@@ -3,7 +3,8 @@ package com.github.old_horizon.selenium.grid.node;
 import com.github.old_horizon.selenium.k8s.*;
 import dev.failsafe.Failsafe;
 import dev.failsafe.RetryPolicy;
-import io.fabric8.kubernetes.api.model.OwnerReference;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.client.readiness.Readiness;
 import org.openqa.selenium.*;
 import org.openqa.selenium.grid.data.CreateSessionRequest;
 import org.openqa.selenium.grid.data.DefaultSlotMatcher;
@@ -11,7 +12,7 @@ import org.openqa.selenium.grid.data.SlotMatcher;
 import org.openqa.selenium.grid.node.ActiveSession;
 import org.openqa.selenium.grid.node.SessionFactory;
 import org.openqa.selenium.internal.Either;
-import org.openqa.selenium.net.HostIdentifier;
+import org.openqa.selenium.json.Json;
 import org.openqa.selenium.remote.*;
 import org.openqa.selenium.remote.http.HttpClient;
 import org.openqa.selenium.remote.http.HttpRequest;
@@ -20,15 +21,16 @@ import org.openqa.selenium.remote.tracing.Span;
 import org.openqa.selenium.remote.tracing.Tracer;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.nio.file.Path;
 import java.time.Duration;
 import java.time.Instant;
-import java.time.temporal.ChronoUnit;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.TimeZone;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -40,44 +42,108 @@ import static org.openqa.selenium.remote.tracing.AttributeKey.*;
 
 public class KubernetesSessionFactory implements SessionFactory {
 
+    static final String RECOVERED_POD_METADATA = "kubernetes:recoveredPod";
+
     private static final Logger LOG = Logger.getLogger(KubernetesSessionFactory.class.getName());
+    private static final Set<String> TIME_ZONE_IDS = Set.copyOf(Arrays.asList(TimeZone.getAvailableIDs()));
+    private static final Json JSON = new Json();
+    // drivers create each browser profile as a temp dir that quitting normally removes; this also clears the ones
+    // left behind by a browser that did not quit cleanly, and the downloads. /tmp itself is kept because Xvfb and
+    // the VNC server keep their sockets there, so files a session wrote anywhere else survive a recycle
+    private static final String[] RESET_COMMAND = {"sh", "-c", "rm -rf \"$HOME\"/Downloads/* "
+            + "/tmp/.com.google.Chrome.* /tmp/.org.chromium.Chromium.* /tmp/.com.microsoft.Edge.* /tmp/scoped_dir* "
+            + "/tmp/rust_mozprofile* /tmp/tmpaddon*"};
+    private static final Duration RESET_TIMEOUT = Duration.ofSeconds(10);
 
     private final Tracer tracer;
     private final HttpClient.Factory clientFactory;
     private final KubernetesDriver k8s;
+    private final PodTerminator terminator;
     private final Duration workerStartupTimeout;
     private final ImagePullPolicy workerImagePullPolicy;
     private final ResourceRequests resourceRequests;
+    private final Optional<String> shmSize;
     private final DockerImage workerImage;
     private final Capabilities stereoType;
     private final DockerImage videoImage;
     private final Duration videoStartupTimeout;
     private final ImagePullPolicy videoImagePullPolicy;
-    private final Optional<Path> videosPath;
+    private final Optional<Duration> videoSegmentDuration;
+    private final VideoCollector videoCollector;
+    private final SessionRecovery recovery;
+    private final Optional<ClusterCapacity> clusterCapacity;
+    private final PodCreationLimiter creationLimiter;
+    private final long cpuRequestMillis;
+    private final long memoryRequestBytes;
+    private final ReadinessCheck readinessCheck;
+    private final boolean failFast;
     private final SlotMatcher slotMatcher;
+    private final Optional<TimeZone> defaultTimeZone;
+    private final WorkerPodSpec.Default defaultPodSpec;
+    private final WorkerPodSpec.VideoRecording videoRecordingPodSpec;
+    private final WorkerPool workerPool;
+    private final boolean recycleWorkers;
+    private final int maxWorkerReuse;
+    private final Duration maxWorkerAge;
 
     public KubernetesSessionFactory(Tracer tracer, HttpClient.Factory clientFactory, KubernetesDriver k8s,
-                                    Duration workerStartupTimeout, ResourceRequests resourceRequests,
+                                    PodTerminator terminator, WorkerOwner owner,
+                                    Duration workerStartupTimeout, ReadinessCheck readinessCheck, boolean failFast,
+                                    ResourceRequests resourceRequests, Optional<String> shmSize,
                                     DockerImage workerImage, ImagePullPolicy workerImagePullPolicy,
                                     Capabilities stereoType, DockerImage videoImage, Duration videoStartupTimeout,
-                                    ImagePullPolicy videoImagePullPolicy, Optional<Path> videosPath) {
+                                    ImagePullPolicy videoImagePullPolicy, Optional<Duration> videoSegmentDuration,
+                                    VideoCollector videoCollector, SessionRecovery recovery,
+                                    Optional<ClusterCapacity> clusterCapacity, PodCreationLimiter creationLimiter,
+                                    WorkerPoolSettings workerPoolSettings) {
         this.tracer = tracer;
         this.clientFactory = clientFactory;
         this.k8s = k8s;
+        this.terminator = terminator;
         this.workerStartupTimeout = workerStartupTimeout;
+        this.readinessCheck = readinessCheck;
+        this.failFast = failFast;
         this.resourceRequests = resourceRequests;
+        this.shmSize = shmSize;
         this.workerImage = workerImage;
         this.workerImagePullPolicy = workerImagePullPolicy;
         this.stereoType = stereoType;
         this.videoImage = videoImage;
         this.videoStartupTimeout = videoStartupTimeout;
         this.videoImagePullPolicy = videoImagePullPolicy;
-        this.videosPath = videosPath;
+        this.videoSegmentDuration = videoSegmentDuration;
+        this.videoCollector = videoCollector;
+        this.recovery = recovery;
+        this.clusterCapacity = clusterCapacity;
+        this.creationLimiter = creationLimiter;
+        this.cpuRequestMillis = getRequest(resourceRequests, ResourceRequest.Target.CPU)
+                .map(ClusterCapacity::toCpuMillis).orElse(0L);
+        this.memoryRequestBytes = getRequest(resourceRequests, ResourceRequest.Target.MEMORY)
+                .map(ClusterCapacity::toMemoryBytes).orElse(0L);
         this.slotMatcher = new DefaultSlotMatcher();
+        this.defaultTimeZone = toTimeZone(System.getenv("TZ"));
+        // everything but the screen resolution and time zone is fixed per stereotype, so the pod templates are too
+        var envVars = getEnvVars();
+        this.defaultPodSpec = new WorkerPodSpec.Default(workerImage, workerImagePullPolicy, resourceRequests, shmSize,
+                Optional.empty(), Optional.empty(), envVars, owner);
+        this.videoRecordingPodSpec = new WorkerPodSpec.VideoRecording(workerImage, workerImagePullPolicy, videoImage,
+                videoImagePullPolicy, resourceRequests, shmSize, Optional.empty(), Optional.empty(), envVars, owner,
+                videoSegmentDuration);
+        this.workerPool = new WorkerPool(stereoType.toString(),
+                () -> startWorker(getWorkerPodSpec(new ImmutableCapabilities())), this::isWorkerReady,
+                worker -> terminator.terminate(worker.getPodName()), workerPoolSettings.getMinIdle(),
+                workerPoolSettings.getMaxIdle(), workerPoolSettings.getTtl());
+        this.recycleWorkers = workerPoolSettings.isRecycleEnabled();
+        this.maxWorkerReuse = workerPoolSettings.getMaxReuse();
+        this.maxWorkerAge = workerPoolSettings.getMaxAge();
     }
 
     @Override
     public Either<WebDriverException, ActiveSession> apply(CreateSessionRequest sessionRequest) {
+        var recoveredPod = sessionRequest.getMetadata().get(RECOVERED_POD_METADATA);
+        if (recoveredPod instanceof Pod) {
+            return recover((Pod) recoveredPod);
+        }
         var desiredCapabilities = sessionRequest.getDesiredCapabilities();
         LOG.info("Starting session for " + desiredCapabilities);
         return new SessionFactoryDelegate(tracer.getCurrentContext()
@@ -85,33 +151,27 @@ public class KubernetesSessionFactory implements SessionFactory {
             @Override
             Either<WebDriverException, ActiveSession> create(Span span, AttributeMap attributeMap) {
                 attributeMap.put(LOGGER_CLASS.getKey(), this.getClass().getName());
-                LOG.info("Creating worker pod...");
-                WorkerPodSpec podSpec = getWorkerPodSpec(desiredCapabilities);
-                var podName = k8s.createPod(podSpec);
-                var podIp = k8s.getPodIp(podName);
-                var workerPort = podSpec.getWorkerPort();
-
-                LOG.info(String.format("Waiting for worker to start (pod: %s)", podName));
+                var poolable = isPoolable(desiredCapabilities);
+                var pooledWorker = poolable ? workerPool.acquire() : Optional.<Worker>empty();
+                attributeMap.put("worker.pool.hit", pooledWorker.isPresent());
 
-                HttpClient client;
-                URL remoteAddress;
+                Worker worker;
                 try {
-                    remoteAddress = toUrl(String.format("http://%s:%d/wd/hub", podIp, workerPort));
-                    client = clientFactory.createClient(remoteAddress);
-                    waitForServerToStart(client, workerStartupTimeout);
-
-                    if (podSpec instanceof WorkerPodSpec.VideoRecording) {
-                        try (var videoClient = clientFactory.createClient(toUrl(String.format("http://%s:%d",
-                                podIp, ((WorkerPodSpec.VideoRecording) podSpec).getVideoPort())))) {
-                            waitForServerToStart(videoClient, videoStartupTimeout);
-                        }
-                    }
+                    worker = pooledWorker.orElseGet(() -> startWorker(getWorkerPodSpec(desiredCapabilities)));
+                } catch (PodStartupException e) {
+                    return webDriverException(e, RetrySessionRequestException::new,
+                            "Unable to start worker: " + e.getMessage());
                 } catch (Exception e) {
-                    k8s.deletePod(podName);
                     return webDriverException(e, RetrySessionRequestException::new, "Unable to connect to worker.");
                 }
+                var podName = worker.getPodName();
+                var podIp = worker.getPodIp();
+                var podSpec = worker.getPodSpec();
+                var workerPort = podSpec.getWorkerPort();
                 LOG.info(String.format("Worker is ready (pod: %s)", podName));
 
+                var remoteAddress = toUrl(String.format("http://%s:%d/wd/hub", podIp, workerPort));
+                var client = clientFactory.createClient(remoteAddress);
                 var command = new Command(null, DriverCommand.NEW_SESSION(desiredCapabilities));
                 ProtocolHandshake.Result result;
                 Response response;
@@ -119,7 +179,7 @@ public class KubernetesSessionFactory implements SessionFactory {
                     result = new ProtocolHandshake().createSession(client, command);
                     response = result.createResponse();
                 } catch (IOException | RuntimeException e) {
-                    k8s.deletePod(podName);
+                    terminator.terminate(podName);
                     return webDriverException(e, SessionNotCreatedException::new,
                             "Unable to create session: " + e.getMessage());
                 }
@@ -133,14 +193,184 @@ public class KubernetesSessionFactory implements SessionFactory {
                 attributeMap.put(DOWNSTREAM_DIALECT.getKey(), downstream.toString());
                 attributeMap.put(DRIVER_RESPONSE.getKey(), response.toString());
 
+                if (videoCollector.isEnabled() && podSpec instanceof WorkerPodSpec.VideoRecording
+                        && ((WorkerPodSpec.VideoRecording) podSpec).isSegmented()) {
+                    videoCollector.startSegmentCollection(podName, (WorkerPodSpec.VideoRecording) podSpec, id);
+                }
+
+                var startTime = Instant.now();
+                recovery.record(podName, id, stereoType, desiredCapabilities, mergedCapabilities, remoteAddress,
+                        downstream, dialect, startTime);
+
                 span.addEvent("Kubernetes driver service created session", attributeMap);
                 LOG.fine(String.format("Created session: %s - %s (pod: %s)", id, capabilities, podName));
                 return Either.right(new KubernetesSession(tracer, client, id, remoteAddress, downstream, dialect,
-                        stereoType, mergedCapabilities, Instant.now(), videosPath, k8s, podName, podSpec));
+                        stereoType, mergedCapabilities, startTime, videoCollector, terminator, podName,
+                        podSpec, Optional.of(worker), poolable ? KubernetesSessionFactory.this::recycle : w -> false));
             }
         }.execute();
     }
 
+    Either<WebDriverException, ActiveSession> recover(Pod pod) {
+        var podName = SessionRecovery.getPodName(pod);
+        var id = SessionRecovery.getSessionId(pod);
+        if (!Readiness.isPodReady(pod)) {
+            return Either.left(new SessionNotCreatedException(String.format("Worker of session %s is not ready " +
+                    "(pod: %s)", id, podName)));
+        }
+        var podSpec = getWorkerPodSpec(SessionRecovery.getRequestedCapabilities(pod));
+        var remoteAddress = toUrl(SessionRecovery.getWorkerUrl(pod));
+        if (videoCollector.isEnabled() && podSpec instanceof WorkerPodSpec.VideoRecording
+                && ((WorkerPodSpec.VideoRecording) podSpec).isSegmented()) {
+            videoCollector.startSegmentCollection(podName, (WorkerPodSpec.VideoRecording) podSpec, id);
+        }
+        LOG.info(String.format("Recovered session %s (pod: %s)", id, podName));
+        return Either.right(new KubernetesSession(tracer, clientFactory.createClient(remoteAddress), id,
+                remoteAddress, SessionRecovery.getDownstreamDialect(pod), SessionRecovery.getUpstreamDialect(pod),
+                stereoType, SessionRecovery.getCapabilities(pod), SessionRecovery.getStartTime(pod), videoCollector,
+                terminator, podName, podSpec, Optional.empty(), worker -> false));
+    }
+
+    Worker startWorker(WorkerPodSpec podSpec) {
+        var reservation = reserveCapacity();
+        PodName podName;
+        try {
+            podName = createPod(podSpec);
+        } catch (RuntimeException e) {
+            reservation.ifPresent(ClusterCapacity.Reservation::close);
+            throw e;
+        }
+        // the pod is counted against the cluster capacity only once the informer has seen it
+        reservation.ifPresent(r -> r.bindTo(podName));
+        try {
+            LOG.info(String.format("Waiting for worker to start (pod: %s)", podName));
+            Ip podIp;
+            if (readinessCheck == ReadinessCheck.Probe && k8s.isWatchingPods()) {
+                var pod = k8s.awaitPod(podName, this::isPodReady, getStartupTimeout(podSpec));
+                podIp = new Ip(pod.getStatus().getPodIP());
+            } else {
+                podIp = k8s.getPodIp(podName);
+                waitForContainersToStart(podIp, podSpec);
+            }
+            return new Worker(podName, podIp, podSpec, Instant.now());
+        } catch (RuntimeException e) {
+            terminator.terminate(podName);
+            throw e;
+        }
+    }
+
+    /**
+     * Hands the worker of a cleanly finished session back to the pool, unless recycling is disabled or the worker
+     * has reached its reuse or age limit. Returns {@code false} if the caller should terminate the worker instead.
+     */
+    boolean recycle(Worker worker) {
+        var now = Instant.now();
+        if (!recycleWorkers || worker.getPodSpec() instanceof WorkerPodSpec.VideoRecording
+                || worker.getReuseCount() >= maxWorkerReuse || worker.isOlderThan(maxWorkerAge, now)) {
+            return false;
+        }
+        return workerPool.recycle(worker.recycled(now), this::resetWorker);
+    }
+
+    boolean resetWorker(Worker worker) {
+        try {
+            k8s.streamCommandOutput(worker.getPodName(), worker.getPodSpec().getWorkerContainerName(), RESET_COMMAND,
+                    OutputStream.nullOutputStream(), RESET_TIMEOUT);
+            recovery.forget(worker.getPodName());
+            return true;
+        } catch (Exception e) {
+            LOG.fine(String.format("Unable to reset worker (pod: %s): %s", worker, e.getMessage()));
+            return false;
+        }
+    }
+
+    PodName createPod(WorkerPodSpec podSpec) {
+        var permit = creationLimiter.acquire(stereoType.toString(), workerStartupTimeout);
+        LOG.info("Creating worker pod...");
+        var started = System.nanoTime();
+        var failed = true;
+        try {
+            var podName = k8s.createPod(podSpec);
+            failed = false;
+            return podName;
+        } finally {
+            permit.release(failed, System.nanoTime() - started);
+        }
+    }
+
+    Optional<ClusterCapacity.Reservation> reserveCapacity() {
+        if (clusterCapacity.isEmpty() || (cpuRequestMillis == 0 && memoryRequestBytes == 0)) {
+            return Optional.empty();
+        }
+        var reservation = clusterCapacity.get().tryReserve(cpuRequestMillis, memoryRequestBytes);
+        if (reservation.isEmpty()) {
+            throw new PodStartupException("No schedulable node has room for a worker");
+        }
+        return reservation;
+    }
+
+    static Optional<String> getRequest(ResourceRequests resourceRequests, ResourceRequest.Target target) {
+        // kubernetes defaults a missing request to the limit
+        var values = resourceRequests.entrySet().stream().filter(e -> e.getKey() == target)
+                .map(Map.Entry::getValue).collect(Collectors.toList());
+        return values.stream().filter(ResourceRequest.Request.class::isInstance).findFirst()
+                .or(() -> values.stream().filter(ResourceRequest.Limit.class::isInstance).findFirst())
+                .map(ResourceRequest.Value::getValue);
+    }
+
+    boolean isPodReady(Pod pod) {
+        if (failFast) {
+            k8s.checkStartable(pod);
+        }
+        return Readiness.isPodReady(pod);
+    }
+
+    Duration getStartupTimeout(WorkerPodSpec podSpec) {
+        var isVideoSlower = videoStartupTimeout.compareTo(workerStartupTimeout) > 0;
+        return podSpec instanceof WorkerPodSpec.VideoRecording && isVideoSlower ? videoStartupTimeout
+                : workerStartupTimeout;
+    }
+
+    void waitForContainersToStart(Ip podIp, WorkerPodSpec podSpec) {
+        // both containers start together, so one loop on this thread checks them side by side, each against its
+        // own timeout, without tying up another thread per starting pod
+        var started = System.nanoTime();
+        var deadlines = new LinkedHashMap<URL, Long>();
+        deadlines.put(toUrl(String.format("http://%s:%d/wd/hub", podIp, podSpec.getWorkerPort())),
+                started + workerStartupTimeout.toNanos());
+        if (podSpec instanceof WorkerPodSpec.VideoRecording
+                && !((WorkerPodSpec.VideoRecording) podSpec).isSegmented()) {
+            deadlines.put(toUrl(String.format("http://%s:%d", podIp,
+                    ((WorkerPodSpec.VideoRecording) podSpec).getVideoPort())), started + videoStartupTimeout.toNanos());
+        }
+        var clients = deadlines.keySet().stream().collect(Collectors.toMap(url -> url, clientFactory::createClient));
+        var retryPolicy = RetryPolicy.<Set<URL>>builder()
+                .withMaxRetries(-1)
+                .withBackoff(Duration.ofMillis(100), Duration.ofSeconds(1))
+                .handleResultIf(pending -> !pending.isEmpty())
+                .abortOn(PodStartupException.class)
+                .build();
+        try {
+            Failsafe.with(retryPolicy).get(() -> {
+                deadlines.keySet().removeIf(url -> isServerUp(clients.get(url)));
+                var now = System.nanoTime();
+                for (var entry : deadlines.entrySet()) {
+                    if (now - entry.getValue() > 0) {
+                        throw new PodStartupException(String.format("Server at %s did not start in time",
+                                entry.getKey()));
+                    }
+                }
+                return Set.copyOf(deadlines.keySet());
+            });
+        } finally {
+            clients.values().forEach(HttpClient::close);
+        }
+    }
+
+    WorkerPool getWorkerPool() {
+        return workerPool;
+    }
+
     @Override
     public Capabilities getStereotype() {
         return stereoType;
@@ -152,14 +382,8 @@ public class KubernetesSessionFactory implements SessionFactory {
     }
 
     WorkerPodSpec getWorkerPodSpec(Capabilities desiredCapabilities) {
-        var screenResolution = getScreenResolution(desiredCapabilities);
-        var timeZone = getTimeZone(desiredCapabilities);
-        var envVars = getEnvVars();
-        return recordVideo(desiredCapabilities) ?
-                new WorkerPodSpec.VideoRecording(workerImage, workerImagePullPolicy, videoImage, videoImagePullPolicy,
-                        resourceRequests, screenResolution, timeZone, envVars, getSelfReference()) :
-                new WorkerPodSpec.Default(workerImage, workerImagePullPolicy, resourceRequests, screenResolution,
-                        timeZone, envVars, getSelfReference());
+        var podSpec = recordVideo(desiredCapabilities) ? videoRecordingPodSpec : defaultPodSpec;
+        return podSpec.withSession(getScreenResolution(desiredCapabilities), getTimeZone(desiredCapabilities));
     }
 
     Optional<Dimension> getScreenResolution(Capabilities desiredCapabilities) {
@@ -183,10 +407,12 @@ public class KubernetesSessionFactory implements SessionFactory {
     }
 
     Optional<TimeZone> getTimeZone(Capabilities desiredCapabilities) {
-        return Arrays.stream(TimeZone.getAvailableIDs()).filter(tz -> tz.equals(
-                        Optional.ofNullable(desiredCapabilities.getCapability("se:timeZone"))
-                                .orElseGet(() -> System.getenv("TZ"))))
-                .findFirst()
+        var requested = desiredCapabilities.getCapability("se:timeZone");
+        return requested == null ? defaultTimeZone : toTimeZone(requested);
+    }
+
+    static Optional<TimeZone> toTimeZone(Object id) {
+        return Optional.ofNullable(id).filter(TIME_ZONE_IDS::contains).map(Object::toString)
                 .map(TimeZone::getTimeZone);
     }
 
@@ -196,6 +422,27 @@ public class KubernetesSessionFactory implements SessionFactory {
                 .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
     }
 
+    boolean isPoolable(Capabilities desiredCapabilities) {
+        return !recordVideo(desiredCapabilities) && getScreenResolution(desiredCapabilities).isEmpty()
+                && getTimeZone(desiredCapabilities).equals(defaultTimeZone);
+    }
+
+    boolean isWorkerReady(Worker worker) {
+        try (var client = clientFactory.createClient(toUrl(String.format("http://%s:%d/wd/hub",
+                worker.getPodIp(), worker.getPodSpec().getWorkerPort())))) {
+            var response = client.execute(new HttpRequest(GET, "/status"));
+            if (response.getStatus() != 200) {
+                return false;
+            }
+            // a server still holding on to a session reports itself as not ready
+            var value = JSON.<Map<String, Object>>toType(string(response), Json.MAP_TYPE).get("value");
+            return value instanceof Map && Boolean.TRUE.equals(((Map<?, ?>) value).get("ready"));
+        } catch (Exception e) {
+            LOG.fine(String.format("Idle worker is not ready (pod: %s): %s", worker, e.getMessage()));
+            return false;
+        }
+    }
+
     boolean recordVideo(Capabilities desiredCapabilities) {
         return Optional.ofNullable(desiredCapabilities.getCapability("se:recordVideo"))
                 .map(Object::toString)
@@ -203,11 +450,6 @@ public class KubernetesSessionFactory implements SessionFactory {
                 .orElse(false);
     }
 
-    OwnerReference getSelfReference() {
-        var myName = new PodName(HostIdentifier.getHostName());
-        return k8s.getOwnerReference(myName);
-    }
-
     URL toUrl(String url) {
         try {
             return new URL(url);
@@ -216,19 +458,14 @@ public class KubernetesSessionFactory implements SessionFactory {
         }
     }
 
-    void waitForServerToStart(HttpClient client, Duration duration) {
-        var retryPolicy = RetryPolicy.<Integer>builder()
-                .withMaxRetries(-1)
-                .withMaxDuration(duration)
-                .withDelay(5, 10, ChronoUnit.SECONDS)
-                .handleResultIf(status -> status != 200)
-                .build();
-
-        Failsafe.with(retryPolicy).get(() -> {
+    boolean isServerUp(HttpClient client) {
+        try {
             var response = client.execute(new HttpRequest(GET, "/status"));
             LOG.fine(string(response));
-            return response.getStatus();
-        });
+            return response.getStatus() == 200;
+        } catch (Exception e) {
+            return false;
+        }
     }
 
     Capabilities addForwardCdpEndpoint(Capabilities sessionCapabilities, Ip ip, int port, String sessionId) {
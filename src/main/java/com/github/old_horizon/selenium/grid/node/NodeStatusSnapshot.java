@@ -0,0 +1,84 @@
+package com.github.old_horizon.selenium.grid.node;
+
+import org.openqa.selenium.grid.data.Availability;
+import org.openqa.selenium.grid.data.NodeId;
+import org.openqa.selenium.grid.data.NodeStatus;
+import org.openqa.selenium.grid.data.Session;
+import org.openqa.selenium.grid.data.Slot;
+import org.openqa.selenium.grid.data.SlotId;
+import org.openqa.selenium.grid.node.local.SessionSlot;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+class NodeStatusSnapshot {
+
+    private final NodeId nodeId;
+    private final BiFunction<Set<Slot>, Availability, NodeStatus> statusFactory;
+    private final Map<UUID, Slot> slots = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+    private volatile Versioned current;
+
+    NodeStatusSnapshot(NodeId nodeId, List<SessionSlot> sessionSlots,
+                       BiFunction<Set<Slot>, Availability, NodeStatus> statusFactory) {
+        this.nodeId = nodeId;
+        this.statusFactory = statusFactory;
+        sessionSlots.forEach(this::released);
+    }
+
+    void reserved(SessionSlot slot) {
+        update(slot, Instant.EPOCH, null);
+    }
+
+    void started(SessionSlot slot, Session session) {
+        update(slot, session.getStartTime(), session);
+    }
+
+    void released(SessionSlot slot) {
+        update(slot, Instant.EPOCH, null);
+    }
+
+    void removed(SessionSlot slot) {
+        slots.remove(slot.getId());
+        version.incrementAndGet();
+    }
+
+    NodeStatus get(Availability availability) {
+        var snapshot = current;
+        // read the version before copying the slots, so that a concurrent update forces the next call to rebuild
+        var latest = version.get();
+        if (snapshot != null && snapshot.version == latest && snapshot.status.getAvailability() == availability) {
+            return snapshot.status;
+        }
+        var status = statusFactory.apply(Set.copyOf(slots.values()), availability);
+        current = new Versioned(latest, status);
+        return status;
+    }
+
+    long getVersion() {
+        return version.get();
+    }
+
+    private void update(SessionSlot slot, Instant lastStarted, Session session) {
+        slots.put(slot.getId(), new Slot(new SlotId(nodeId, slot.getId()), slot.getStereotype(), lastStarted,
+                session));
+        version.incrementAndGet();
+    }
+
+    private static class Versioned {
+
+        private final long version;
+        private final NodeStatus status;
+
+        Versioned(long version, NodeStatus status) {
+            this.version = version;
+            this.status = status;
+        }
+    }
+}
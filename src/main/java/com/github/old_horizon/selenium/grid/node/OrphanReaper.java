@@ -0,0 +1,131 @@
+package com.github.old_horizon.selenium.grid.node;
+
+import com.github.old_horizon.selenium.k8s.KubernetesDriver;
+import com.github.old_horizon.selenium.k8s.PodName;
+import com.github.old_horizon.selenium.k8s.PodTerminator;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.api.model.Quantity;
+import org.openqa.selenium.concurrent.GuardedRunnable;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+class OrphanReaper {
+
+    private static final Logger LOG = Logger.getLogger(OrphanReaper.class.getName());
+
+    private final KubernetesDriver k8s;
+    private final Map<String, String> selectorLabels;
+    private final PodTerminator terminator;
+    private final Duration interval;
+    private final Duration gracePeriod;
+    private final ScheduledExecutorService executor;
+    private final AtomicInteger orphans = new AtomicInteger();
+    private final AtomicLong reaped = new AtomicLong();
+    private final AtomicLong reapedCpuMillis = new AtomicLong();
+    private final AtomicLong reapedMemoryBytes = new AtomicLong();
+    private volatile Supplier<Set<PodName>> livePods = Set::of;
+    private Set<PodName> suspects = Set.of();
+
+    OrphanReaper(KubernetesDriver k8s, Map<String, String> selectorLabels, PodTerminator terminator,
+                 Duration interval, Duration gracePeriod) {
+        this.k8s = k8s;
+        this.selectorLabels = selectorLabels;
+        this.terminator = terminator;
+        this.interval = interval;
+        this.gracePeriod = gracePeriod;
+        this.executor = isEnabled() ? Executors.newSingleThreadScheduledExecutor(r -> {
+            var thread = new Thread(r);
+            thread.setDaemon(true);
+            thread.setName("Kubernetes Node - Orphan Reaper");
+            return thread;
+        }) : null;
+    }
+
+    boolean isEnabled() {
+        return !interval.isZero() && !interval.isNegative();
+    }
+
+    void start(Supplier<Set<PodName>> livePods) {
+        this.livePods = livePods;
+        if (isEnabled()) {
+            executor.scheduleWithFixedDelay(GuardedRunnable.guard(this::reconcile), interval.toMillis(),
+                    interval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    void close() {
+        if (isEnabled()) {
+            executor.shutdownNow();
+        }
+    }
+
+    int getOrphanCount() {
+        return orphans.get();
+    }
+
+    long getReapedCount() {
+        return reaped.get();
+    }
+
+    long getReapedCpuMillis() {
+        return reapedCpuMillis.get();
+    }
+
+    long getReapedMemoryBytes() {
+        return reapedMemoryBytes.get();
+    }
+
+    void reconcile() {
+        var live = livePods.get();
+        var threshold = Instant.now().minus(gracePeriod);
+        var orphaned = new HashSet<PodName>();
+        var reapedNow = 0;
+        for (var pod : k8s.listPods(selectorLabels, WorkerPodSpec.WORKER_LABEL)) {
+            var name = new PodName(pod.getMetadata().getName());
+            if (live.contains(name) || pod.getMetadata().getDeletionTimestamp() != null
+                    || getCreationTime(pod).map(t -> t.isAfter(threshold)).orElse(true)) {
+                continue;
+            }
+            orphaned.add(name);
+            // a pod must be unowned on two consecutive passes, so sessions being handed a worker are not reaped
+            if (suspects.contains(name)) {
+                terminator.terminate(name);
+                reaped.incrementAndGet();
+                reapedCpuMillis.addAndGet(getRequests(pod, "cpu").movePointRight(3).longValue());
+                reapedMemoryBytes.addAndGet(getRequests(pod, "memory").longValue());
+                reapedNow++;
+            }
+        }
+        orphans.set(orphaned.size());
+        suspects = orphaned;
+        if (reapedNow > 0) {
+            LOG.warning(String.format("Reaped %d orphaned worker pods", reapedNow));
+        }
+    }
+
+    private Optional<Instant> getCreationTime(Pod pod) {
+        return Optional.ofNullable(pod.getMetadata().getCreationTimestamp()).map(Instant::parse);
+    }
+
+    private BigDecimal getRequests(Pod pod, String resource) {
+        return pod.getSpec().getContainers().stream()
+                .map(c -> c.getResources() == null || c.getResources().getRequests() == null ? null :
+                        c.getResources().getRequests().get(resource))
+                .filter(q -> q != null)
+                .map(Quantity::getAmountInBytes)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+}
@@ -0,0 +1,160 @@
+package com.github.old_horizon.selenium.grid.node;
+
+import com.github.old_horizon.selenium.k8s.PodStartupException;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Caps the pods being created at once, globally and per stereotype. Waiting creations are served round-robin across
+ * stereotypes, so that a burst for one browser does not starve the others. The global limit adapts to the API server:
+ * it grows by one per limit's worth of fast creations and halves when a creation fails or exceeds the latency target.
+ */
+class PodCreationLimiter {
+
+    private static final Logger LOG = Logger.getLogger(PodCreationLimiter.class.getName());
+    private static final double DECREASE_FACTOR = 0.5;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final int stereotypeLimit;
+    private final long latencyTargetNanos;
+    private final Map<String, Deque<Permit>> waiting = new LinkedHashMap<>();
+    private final Map<String, Integer> inFlightByStereotype = new HashMap<>();
+    private double limit;
+    private int inFlight;
+    private long epoch;
+    private long decreases;
+
+    PodCreationLimiter(int minLimit, int maxLimit, int stereotypeLimit, Duration latencyTarget) {
+        this.maxLimit = Math.max(maxLimit, 1);
+        this.minLimit = Math.min(Math.max(minLimit, 1), this.maxLimit);
+        this.stereotypeLimit = Math.max(stereotypeLimit, 1);
+        this.latencyTargetNanos = latencyTarget.toNanos();
+        this.limit = this.maxLimit;
+    }
+
+    Permit acquire(String stereotype, Duration timeout) {
+        var permit = new Permit(stereotype);
+        synchronized (this) {
+            waiting.computeIfAbsent(stereotype, k -> new ArrayDeque<>()).add(permit);
+            dispatch();
+            var deadline = System.nanoTime() + timeout.toNanos();
+            try {
+                while (!permit.granted) {
+                    var remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        throw new PodStartupException(String.format("Too many pods are being created (limit: %d)",
+                                getLimit()));
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new PodStartupException("Interrupted while waiting to create a pod");
+            } finally {
+                if (!permit.granted) {
+                    var queue = waiting.get(stereotype);
+                    queue.remove(permit);
+                    if (queue.isEmpty()) {
+                        waiting.remove(stereotype);
+                    }
+                }
+            }
+        }
+        return permit;
+    }
+
+    synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    synchronized int getWaiting() {
+        return waiting.values().stream().mapToInt(Deque::size).sum();
+    }
+
+    synchronized long getDecreaseCount() {
+        return decreases;
+    }
+
+    private synchronized void release(Permit permit, boolean failed, long latencyNanos) {
+        if (permit.released) {
+            return;
+        }
+        permit.released = true;
+        inFlight--;
+        inFlightByStereotype.computeIfPresent(permit.stereotype, (k, v) -> v > 1 ? v - 1 : null);
+        if (failed || latencyNanos > latencyTargetNanos) {
+            // a burst of slow creations is one congestion signal, so only decrease once per generation of permits
+            if (permit.epoch == epoch) {
+                epoch++;
+                decreases++;
+                var previous = limit;
+                limit = Math.max(limit * DECREASE_FACTOR, minLimit);
+                LOG.info(String.format("Decreased pod creation limit from %d to %d (%s)", (int) previous,
+                        (int) limit, failed ? "failed" : String.format("took %d ms",
+                                TimeUnit.NANOSECONDS.toMillis(latencyNanos))));
+            }
+        } else {
+            limit = Math.min(limit + 1 / limit, maxLimit);
+        }
+        dispatch();
+    }
+
+    private void dispatch() {
+        var granted = false;
+        var progress = true;
+        while (inFlight < (int) limit && progress) {
+            progress = false;
+            for (var entry : waiting.entrySet()) {
+                var stereotype = entry.getKey();
+                var queue = entry.getValue();
+                if (inFlightByStereotype.getOrDefault(stereotype, 0) >= stereotypeLimit) {
+                    continue;
+                }
+                var permit = queue.poll();
+                permit.granted = true;
+                permit.epoch = epoch;
+                inFlight++;
+                inFlightByStereotype.merge(stereotype, 1, Integer::sum);
+                // move the stereotype to the back of the line
+                waiting.remove(stereotype);
+                if (!queue.isEmpty()) {
+                    waiting.put(stereotype, queue);
+                }
+                granted = true;
+                progress = true;
+                break;
+            }
+        }
+        if (granted) {
+            notifyAll();
+        }
+    }
+
+    class Permit {
+
+        private final String stereotype;
+        private boolean granted;
+        private long epoch;
+        private boolean released;
+
+        Permit(String stereotype) {
+            this.stereotype = stereotype;
+        }
+
+        void release(boolean failed, long latencyNanos) {
+            PodCreationLimiter.this.release(this, failed, latencyNanos);
+        }
+    }
+}
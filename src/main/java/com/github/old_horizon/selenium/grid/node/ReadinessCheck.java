@@ -0,0 +1,5 @@
+package com.github.old_horizon.selenium.grid.node;
+
+public enum ReadinessCheck {
+    Probe, Poll
+}
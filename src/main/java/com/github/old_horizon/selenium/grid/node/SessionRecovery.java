@@ -0,0 +1,302 @@
+package com.github.old_horizon.selenium.grid.node;
+
+import com.github.old_horizon.selenium.k8s.KubernetesDriver;
+import com.github.old_horizon.selenium.k8s.PodName;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.client.readiness.Readiness;
+import org.openqa.selenium.Capabilities;
+import org.openqa.selenium.concurrent.GuardedRunnable;
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.remote.Dialect;
+import org.openqa.selenium.remote.SessionId;
+
+import java.net.URL;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+class SessionRecovery {
+
+    static final String SESSION_LABEL = "selenium-dynamic-grid/session";
+    static final String STEREOTYPE_ANNOTATION = "selenium-dynamic-grid/stereotype";
+    static final String REQUESTED_CAPABILITIES_ANNOTATION = "selenium-dynamic-grid/requested-capabilities";
+    static final String CAPABILITIES_ANNOTATION = "selenium-dynamic-grid/capabilities";
+    static final String WORKER_URL_ANNOTATION = "selenium-dynamic-grid/worker-url";
+    static final String DOWNSTREAM_DIALECT_ANNOTATION = "selenium-dynamic-grid/downstream-dialect";
+    static final String UPSTREAM_DIALECT_ANNOTATION = "selenium-dynamic-grid/upstream-dialect";
+    static final String START_TIME_ANNOTATION = "selenium-dynamic-grid/start-time";
+
+    private static final Logger LOG = Logger.getLogger(SessionRecovery.class.getName());
+    private static final Json JSON = new Json();
+    private static final int QUEUE_SIZE = 1000;
+
+    private final KubernetesDriver k8s;
+    private final WorkerOwner owner;
+    private final boolean enabled;
+    private final Duration interval;
+    private final Duration gracePeriod;
+    private final ThreadPoolExecutor executor;
+    private final ScheduledExecutorService adopter;
+    // pods taken over from another grid pod whose sessions could not be recovered yet
+    private final Set<PodName> unrecovered = ConcurrentHashMap.newKeySet();
+
+    SessionRecovery(KubernetesDriver k8s, WorkerOwner owner, boolean enabled, Duration interval,
+                    Duration gracePeriod) {
+        this.k8s = k8s;
+        this.owner = owner;
+        this.enabled = enabled;
+        this.interval = interval;
+        this.gracePeriod = gracePeriod;
+        // a single thread keeps the updates of a pod in order, so that forgetting a session cannot overtake
+        // recording it
+        this.executor = enabled ? new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_SIZE), r -> {
+            var thread = new Thread(r);
+            thread.setDaemon(true);
+            thread.setName("Session Recovery");
+            return thread;
+        }) : null;
+        this.adopter = enabled ? Executors.newSingleThreadScheduledExecutor(r -> {
+            var thread = new Thread(r);
+            thread.setDaemon(true);
+            thread.setName("Session Recovery - Adoption");
+            return thread;
+        }) : null;
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    void record(PodName podName, SessionId id, Capabilities stereotype, Capabilities requestedCapabilities,
+                Capabilities capabilities, URL workerUrl, Dialect downstream, Dialect upstream, Instant startTime) {
+        if (!enabled) {
+            return;
+        }
+        // recording is off the session creation path, a session that has not been recorded yet when the node
+        // restarts is lost like it would be without recovery
+        try {
+            executor.execute(() -> annotate(podName, id, stereotype, requestedCapabilities, capabilities, workerUrl,
+                    downstream, upstream, startTime));
+        } catch (RejectedExecutionException e) {
+            LOG.warning(String.format("Too many sessions waiting to be recorded, session %s on pod %s will not "
+                    + "survive a restart", id, podName));
+        }
+    }
+
+    private void annotate(PodName podName, SessionId id, Capabilities stereotype, Capabilities requestedCapabilities,
+                          Capabilities capabilities, URL workerUrl, Dialect downstream, Dialect upstream,
+                          Instant startTime) {
+        try {
+            k8s.annotatePod(podName, Map.of(SESSION_LABEL, id.toString()), Map.of(
+                    STEREOTYPE_ANNOTATION, JSON.toJson(stereotype),
+                    REQUESTED_CAPABILITIES_ANNOTATION, JSON.toJson(requestedCapabilities),
+                    CAPABILITIES_ANNOTATION, JSON.toJson(capabilities),
+                    WORKER_URL_ANNOTATION, workerUrl.toString(),
+                    DOWNSTREAM_DIALECT_ANNOTATION, downstream.name(),
+                    UPSTREAM_DIALECT_ANNOTATION, upstream.name(),
+                    START_TIME_ANNOTATION, startTime.toString()));
+        } catch (Exception e) {
+            LOG.log(Level.WARNING, String.format("Unable to record session %s on pod %s, it will not survive a " +
+                    "restart", id, podName), e);
+        }
+    }
+
+    /**
+     * Unmarks a pod whose session has ended but which is kept for another one, so that a restart does not mistake it
+     * for a running session.
+     */
+    void forget(PodName podName) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    k8s.removePodLabel(podName, SESSION_LABEL);
+                } catch (Exception e) {
+                    LOG.log(Level.WARNING, String.format("Unable to unmark pod %s, a restart may recover its ended "
+                            + "session", podName), e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            LOG.warning(String.format("Too many pods waiting to be unmarked, a restart may recover the ended session "
+                    + "of pod %s", podName));
+        }
+    }
+
+    /**
+     * Periodically hands the pods other grid pods have left behind to {@code adoption}, so that sessions survive the
+     * grid pod being replaced even though the replacement starts before its predecessor lets go of them.
+     */
+    void start(Runnable adoption) {
+        if (enabled) {
+            adopter.scheduleWithFixedDelay(GuardedRunnable.guard(adoption), interval.toMillis(), interval.toMillis(),
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stops adopting pods and waits for the recorded sessions to be written, so that they can be handed over.
+     */
+    void close(Duration timeout) {
+        if (!enabled) {
+            return;
+        }
+        adopter.shutdownNow();
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(timeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                LOG.warning(String.format("%d sessions were not recorded before shutdown", executor.getQueue().size()));
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Returns the worker pods of the grid that no live grid pod manages: those released by a grid pod that shut down,
+     * those of a grid pod that is gone, and those taken over earlier but not recovered yet. With {@code includeOwn},
+     * it also returns this grid pod's own session pods, which a restart of its container has lost track of.
+     */
+    List<Pod> findAbandonedPods(boolean includeOwn) {
+        if (!enabled) {
+            return Collections.emptyList();
+        }
+        var instance = owner.getInstance().getValue();
+        var liveOwners = new HashMap<String, Boolean>();
+        return k8s.listPods(owner.getGridLabels(), WorkerPodSpec.WORKER_LABEL).stream()
+                .filter(pod -> pod.getMetadata().getDeletionTimestamp() == null)
+                .filter(pod -> {
+                    var podOwner = pod.getMetadata().getLabels().get(WorkerPodSpec.OWNER_LABEL);
+                    if (instance.equals(podOwner)) {
+                        return hasSession(pod) && (includeOwn || unrecovered.contains(getPodName(pod)));
+                    }
+                    return podOwner == null || !liveOwners.computeIfAbsent(podOwner,
+                            name -> k8s.getPod(new PodName(name)).isPresent());
+                })
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Makes this grid pod manage the given pod, which is then watched, deleted and reaped like the ones it created.
+     */
+    void adopt(Pod pod) {
+        var podName = getPodName(pod);
+        if (!owner.getInstance().getValue().equals(pod.getMetadata().getLabels().get(WorkerPodSpec.OWNER_LABEL))) {
+            k8s.annotatePod(podName, owner.getSelectorLabels(), Collections.emptyMap());
+        }
+        unrecovered.add(podName);
+    }
+
+    /**
+     * Stops tracking a pod taken over from another grid pod, once its session is recovered or the pod is deleted.
+     */
+    void settled(PodName podName) {
+        unrecovered.remove(podName);
+    }
+
+    Set<PodName> getUnrecoveredPodNames() {
+        return Set.copyOf(unrecovered);
+    }
+
+    /**
+     * Stops managing a pod whose session is left running for the next grid pod to adopt.
+     */
+    void release(PodName podName) {
+        k8s.removePodLabel(podName, WorkerPodSpec.OWNER_LABEL);
+    }
+
+    /**
+     * Returns the recorded session pods this grid pod manages.
+     */
+    List<Pod> findSessionPods() {
+        return enabled ? k8s.listPods(owner.getSelectorLabels(), SESSION_LABEL) : Collections.emptyList();
+    }
+
+    /**
+     * Tells whether the worker of a pod is beyond recovery: it has terminated, or has not been ready for longer than
+     * the grace period. A worker that is only briefly not ready, e.g. while its browser is busy, is kept.
+     */
+    boolean isLost(Pod pod) {
+        var status = pod.getStatus();
+        if (status == null) {
+            return false;
+        }
+        if ("Failed".equals(status.getPhase()) || "Succeeded".equals(status.getPhase())) {
+            return true;
+        }
+        var threshold = Instant.now().minus(gracePeriod);
+        return !Readiness.isPodReady(pod) && Optional.ofNullable(status.getConditions()).stream()
+                .flatMap(List::stream)
+                .filter(c -> "Ready".equals(c.getType()) && c.getLastTransitionTime() != null)
+                .anyMatch(c -> Instant.parse(c.getLastTransitionTime()).isBefore(threshold));
+    }
+
+    static boolean hasSession(Pod pod) {
+        return pod.getMetadata().getLabels().containsKey(SESSION_LABEL);
+    }
+
+    static PodName getPodName(Pod pod) {
+        return new PodName(pod.getMetadata().getName());
+    }
+
+    static SessionId getSessionId(Pod pod) {
+        return new SessionId(pod.getMetadata().getLabels().get(SESSION_LABEL));
+    }
+
+    static Capabilities getStereotype(Pod pod) {
+        return JSON.toType(getAnnotation(pod, STEREOTYPE_ANNOTATION), Capabilities.class);
+    }
+
+    static Capabilities getRequestedCapabilities(Pod pod) {
+        return JSON.toType(getAnnotation(pod, REQUESTED_CAPABILITIES_ANNOTATION), Capabilities.class);
+    }
+
+    static Capabilities getCapabilities(Pod pod) {
+        return JSON.toType(getAnnotation(pod, CAPABILITIES_ANNOTATION), Capabilities.class);
+    }
+
+    static String getWorkerUrl(Pod pod) {
+        return getAnnotation(pod, WORKER_URL_ANNOTATION);
+    }
+
+    static Dialect getDownstreamDialect(Pod pod) {
+        return Dialect.valueOf(getAnnotation(pod, DOWNSTREAM_DIALECT_ANNOTATION));
+    }
+
+    static Dialect getUpstreamDialect(Pod pod) {
+        return Dialect.valueOf(getAnnotation(pod, UPSTREAM_DIALECT_ANNOTATION));
+    }
+
+    static Instant getStartTime(Pod pod) {
+        return Instant.parse(getAnnotation(pod, START_TIME_ANNOTATION));
+    }
+
+    private static String getAnnotation(Pod pod, String name) {
+        var annotations = pod.getMetadata().getAnnotations();
+        var value = annotations == null ? null : annotations.get(name);
+        if (value == null) {
+            throw new IllegalStateException(String.format("Pod %s has no %s annotation", pod.getMetadata().getName(),
+                    name));
+        }
+        return value;
+    }
+}
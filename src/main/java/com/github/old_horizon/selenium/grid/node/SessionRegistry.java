@@ -0,0 +1,193 @@
+package com.github.old_horizon.selenium.grid.node;
+
+import org.openqa.selenium.concurrent.GuardedRunnable;
+import org.openqa.selenium.grid.node.local.SessionSlot;
+import org.openqa.selenium.remote.SessionId;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+class SessionRegistry {
+
+    private static final Logger LOG = Logger.getLogger(SessionRegistry.class.getName());
+    private static final int WHEEL_SIZE = 512;
+    private static final int EVICTION_CONCURRENCY = 16;
+
+    private final long tickNanos;
+    private final Listener listener;
+    private final Map<SessionId, Entry> sessions = new ConcurrentHashMap<>();
+    private final List<Queue<Scheduled>> wheel;
+    private final long startedAt = System.nanoTime();
+    private final ScheduledExecutorService ticker;
+    private final ExecutorService evictor;
+    private volatile long currentTick;
+
+    SessionRegistry(Duration tick, Listener listener) {
+        this.tickNanos = tick.toNanos();
+        this.listener = listener;
+        this.wheel = new ArrayList<>(WHEEL_SIZE);
+        for (var i = 0; i < WHEEL_SIZE; i++) {
+            wheel.add(new ConcurrentLinkedQueue<>());
+        }
+        this.ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            var thread = new Thread(r);
+            thread.setDaemon(true);
+            thread.setName("Kubernetes Node - Session Timeout");
+            return thread;
+        });
+        var evictor = new ThreadPoolExecutor(EVICTION_CONCURRENCY, EVICTION_CONCURRENCY, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+            var thread = new Thread(r);
+            thread.setDaemon(true);
+            thread.setName("Kubernetes Node - Session Eviction");
+            return thread;
+        });
+        evictor.allowCoreThreadTimeOut(true);
+        this.evictor = evictor;
+        ticker.scheduleAtFixedRate(GuardedRunnable.guard(this::advance), tickNanos, tickNanos,
+                TimeUnit.NANOSECONDS);
+    }
+
+    void put(SessionId id, SessionSlot slot, Duration idleTimeout, Optional<Duration> maxDuration) {
+        var entry = new Entry(id, slot, idleTimeout.toNanos(),
+                maxDuration.map(d -> System.nanoTime() + d.toNanos()).orElse(Long.MAX_VALUE));
+        sessions.put(id, entry);
+        schedule(entry);
+    }
+
+    Optional<SessionSlot> get(SessionId id) {
+        var entry = sessions.get(id);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        // expiry is checked lazily when the entry's bucket comes round, so a touch only records the access time
+        entry.lastAccess = System.nanoTime();
+        return Optional.of(entry.slot);
+    }
+
+    boolean contains(SessionId id) {
+        return get(id).isPresent();
+    }
+
+    void remove(SessionId id) {
+        var entry = sessions.remove(id);
+        if (entry != null) {
+            listener.onRemoval(id, entry.slot, false);
+        }
+    }
+
+    List<SessionSlot> getSlots() {
+        return sessions.values().stream().map(e -> e.slot).collect(Collectors.toList());
+    }
+
+    List<SessionId> getSessionIds() {
+        return List.copyOf(sessions.keySet());
+    }
+
+    int size() {
+        return sessions.size();
+    }
+
+    private void schedule(Entry entry) {
+        Scheduled scheduled;
+        do {
+            // the current tick's bucket may be being drained right now, so the next tick is the earliest one
+            var tick = Math.max((entry.deadline() - startedAt) / tickNanos, currentTick + 1);
+            scheduled = new Scheduled(entry, tick);
+            entry.scheduled = scheduled;
+            wheel.get((int) (tick % WHEEL_SIZE)).add(scheduled);
+            // if the ticker reached the chosen tick meanwhile, its drain may have passed the bucket before the entry
+            // was added, so schedule it again; whichever copy is not the entry's latest is skipped when found
+        } while (currentTick >= scheduled.tick);
+    }
+
+    private void advance() {
+        var now = System.nanoTime();
+        // a tick is processed once it has fully elapsed, so every entry still due in it has expired
+        var elapsedTicks = (now - startedAt) / tickNanos;
+        while (currentTick < elapsedTicks) {
+            var bucket = wheel.get((int) (currentTick % WHEEL_SIZE));
+            var expired = new ArrayList<Entry>();
+            var postponed = new ArrayList<Entry>();
+            for (var it = bucket.iterator(); it.hasNext(); ) {
+                var scheduled = it.next();
+                it.remove();
+                var entry = scheduled.entry;
+                if (entry.scheduled != scheduled || sessions.get(entry.id) != entry) {
+                    continue;
+                }
+                if (entry.deadline() <= now) {
+                    expired.add(entry);
+                } else {
+                    // touched since it was scheduled, or due on a later lap of the wheel
+                    postponed.add(entry);
+                }
+            }
+            currentTick++;
+            postponed.forEach(this::schedule);
+            expired.stream().filter(e -> sessions.remove(e.id, e)).forEach(this::evict);
+        }
+    }
+
+    private void evict(Entry entry) {
+        try {
+            evictor.execute(() -> listener.onRemoval(entry.id, entry.slot, true));
+        } catch (RejectedExecutionException e) {
+            LOG.log(Level.WARNING, String.format("Unable to stop timed out session %s", entry.id), e);
+        }
+    }
+
+    interface Listener {
+
+        void onRemoval(SessionId id, SessionSlot slot, boolean expired);
+    }
+
+    private static class Entry {
+
+        private final SessionId id;
+        private final SessionSlot slot;
+        private final long idleTimeoutNanos;
+        private final long expiresAt;
+        private volatile long lastAccess = System.nanoTime();
+        private volatile Scheduled scheduled;
+
+        Entry(SessionId id, SessionSlot slot, long idleTimeoutNanos, long expiresAt) {
+            this.id = id;
+            this.slot = slot;
+            this.idleTimeoutNanos = idleTimeoutNanos;
+            this.expiresAt = expiresAt;
+        }
+
+        long deadline() {
+            // the absolute deadline caps the idle one regardless of how often the session is touched
+            return Math.min(lastAccess + idleTimeoutNanos, expiresAt);
+        }
+    }
+
+    private static class Scheduled {
+
+        private final Entry entry;
+        private final long tick;
+
+        Scheduled(Entry entry, long tick) {
+            this.entry = entry;
+            this.tick = tick;
+        }
+    }
+}
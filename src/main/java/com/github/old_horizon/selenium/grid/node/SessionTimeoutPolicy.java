@@ -0,0 +1,58 @@
+package com.github.old_horizon.selenium.grid.node;
+
+import org.openqa.selenium.Capabilities;
+
+import java.time.Duration;
+import java.util.Optional;
+
+class SessionTimeoutPolicy {
+
+    static final String IDLE_TIMEOUT_CAPABILITY = "se:idleTimeout";
+    static final String MAX_DURATION_CAPABILITY = "se:maxDuration";
+
+    private final Duration minTimeout;
+    private final Duration defaultIdleTimeout;
+    private final Duration maxIdleTimeout;
+    private final Optional<Duration> maxDuration;
+
+    SessionTimeoutPolicy(Duration minTimeout, Duration defaultIdleTimeout, Duration maxIdleTimeout,
+                         Optional<Duration> maxDuration) {
+        this.minTimeout = minTimeout;
+        this.defaultIdleTimeout = defaultIdleTimeout;
+        this.maxIdleTimeout = maxIdleTimeout;
+        this.maxDuration = maxDuration;
+    }
+
+    Duration getIdleTimeout(Capabilities capabilities) {
+        return getSeconds(capabilities, IDLE_TIMEOUT_CAPABILITY).map(this::clamp)
+                .map(d -> d.compareTo(maxIdleTimeout) > 0 ? maxIdleTimeout : d)
+                .orElse(defaultIdleTimeout);
+    }
+
+    Optional<Duration> getMaxDuration(Capabilities capabilities) {
+        var requested = getSeconds(capabilities, MAX_DURATION_CAPABILITY).map(this::clamp);
+        if (requested.isEmpty()) {
+            return maxDuration;
+        }
+        return maxDuration.filter(max -> requested.get().compareTo(max) > 0).or(() -> requested);
+    }
+
+    private Duration clamp(Duration duration) {
+        return duration.compareTo(minTimeout) < 0 ? minTimeout : duration;
+    }
+
+    private Optional<Duration> getSeconds(Capabilities capabilities, String name) {
+        var value = capabilities.getCapability(name);
+        if (value instanceof Number) {
+            return Optional.of(Duration.ofSeconds(((Number) value).longValue()));
+        }
+        if (value instanceof String) {
+            try {
+                return Optional.of(Duration.ofSeconds(Long.parseLong((String) value)));
+            } catch (NumberFormatException e) {
+                return Optional.empty();
+            }
+        }
+        return Optional.empty();
+    }
+}
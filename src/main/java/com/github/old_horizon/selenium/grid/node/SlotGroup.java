@@ -0,0 +1,101 @@
+package com.github.old_horizon.selenium.grid.node;
+
+import org.openqa.selenium.Capabilities;
+import org.openqa.selenium.grid.node.local.SessionSlot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+class SlotGroup {
+
+    private final String definition;
+    private final KubernetesSessionFactory factory;
+    private final List<SessionSlot> slots;
+    private final ConcurrentLinkedDeque<SessionSlot> free;
+    private volatile boolean retired;
+
+    SlotGroup(String definition, KubernetesSessionFactory factory, List<SessionSlot> slots) {
+        this.definition = definition;
+        this.factory = factory;
+        this.slots = List.copyOf(slots);
+        this.free = new ConcurrentLinkedDeque<>(slots);
+    }
+
+    String getDefinition() {
+        return definition;
+    }
+
+    KubernetesSessionFactory getFactory() {
+        return factory;
+    }
+
+    Capabilities getStereotype() {
+        return factory.getStereotype();
+    }
+
+    List<SessionSlot> getSlots() {
+        return slots;
+    }
+
+    boolean test(Capabilities capabilities) {
+        return factory.test(capabilities);
+    }
+
+    Optional<SessionSlot> reserve() {
+        if (retired) {
+            return Optional.empty();
+        }
+        var slot = free.pollFirst();
+        if (slot == null) {
+            return Optional.empty();
+        }
+        slot.reserve();
+        return Optional.of(slot);
+    }
+
+    /**
+     * Returns the slot to the group, or reports {@code false} if the group was retired in the meantime and the slot
+     * should be dropped instead. A slot drained by a concurrent {@link #retire()} is reported as returned, since the
+     * retiring side drops it.
+     */
+    boolean release(SessionSlot slot) {
+        if (!slot.isAvailable()) {
+            slot.release();
+        }
+        if (retired) {
+            return false;
+        }
+        free.offerFirst(slot);
+        // retire() may have drained the free slots between the check and the push, whoever takes the slot back out
+        // is the one to drop it
+        return !retired || !free.remove(slot);
+    }
+
+    /**
+     * Stops handing out slots and returns the ones that were free; slots still in use are dropped as they are
+     * released.
+     */
+    List<SessionSlot> retire() {
+        retired = true;
+        var drained = new ArrayList<SessionSlot>();
+        SessionSlot slot;
+        while ((slot = free.pollFirst()) != null) {
+            drained.add(slot);
+        }
+        return drained;
+    }
+
+    boolean isRetired() {
+        return retired;
+    }
+
+    boolean isIdle() {
+        return slots.stream().allMatch(SessionSlot::isAvailable);
+    }
+
+    int getAvailableCount() {
+        return free.size();
+    }
+}
@@ -0,0 +1,311 @@
+package com.github.old_horizon.selenium.grid.node;
+
+import com.github.old_horizon.selenium.k8s.ContainerName;
+import com.github.old_horizon.selenium.k8s.KubernetesDriver;
+import com.github.old_horizon.selenium.k8s.PodName;
+import com.github.old_horizon.selenium.k8s.PodTerminator;
+import com.google.common.io.BaseEncoding;
+import com.google.common.io.CountingOutputStream;
+import org.openqa.selenium.concurrent.GuardedRunnable;
+import org.openqa.selenium.remote.SessionId;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+class VideoCollector {
+
+    private static final Logger LOG = Logger.getLogger(VideoCollector.class.getName());
+
+    private final KubernetesDriver k8s;
+    private final PodTerminator terminator;
+    private final Optional<Path> videosPath;
+    private final Duration timeout;
+    private final Optional<String> checksumAlgorithm;
+    private final ThreadPoolExecutor executor;
+    private final ScheduledExecutorService segmentPuller;
+    private final Map<SessionId, SegmentedRecording> recordings = new ConcurrentHashMap<>();
+    private final Set<PodName> collecting = ConcurrentHashMap.newKeySet();
+    private final AtomicLong collected = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong copiedBytes = new AtomicLong();
+    private final AtomicLong copyMillis = new AtomicLong();
+
+    VideoCollector(KubernetesDriver k8s, PodTerminator terminator, Optional<Path> videosPath, Duration timeout,
+                   Optional<String> checksumAlgorithm, int concurrency, int queueSize) {
+        this.k8s = k8s;
+        this.terminator = terminator;
+        this.videosPath = videosPath;
+        this.timeout = timeout;
+        this.checksumAlgorithm = checksumAlgorithm;
+        checksumAlgorithm.ifPresent(this::getMessageDigest);
+        this.executor = new ThreadPoolExecutor(concurrency, concurrency, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), r -> {
+            var thread = new Thread(r);
+            thread.setDaemon(true);
+            thread.setName("Video Collector");
+            return thread;
+        });
+        this.segmentPuller = Executors.newScheduledThreadPool(concurrency, r -> {
+            var thread = new Thread(r);
+            thread.setDaemon(true);
+            thread.setName("Video Collector - Segments");
+            return thread;
+        });
+    }
+
+    boolean isEnabled() {
+        return videosPath.isPresent();
+    }
+
+    void startSegmentCollection(PodName podName, WorkerPodSpec.VideoRecording spec, SessionId sessionId) {
+        var recording = new SegmentedRecording(podName, spec, sessionId);
+        recordings.put(sessionId, recording);
+        var interval = spec.getSegmentDuration().orElseThrow().toMillis();
+        recording.task = segmentPuller.scheduleWithFixedDelay(GuardedRunnable.guard(() -> {
+            try {
+                recording.pull(false);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }), interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    void collect(PodName podName, WorkerPodSpec.VideoRecording spec, SessionId sessionId) {
+        collecting.add(podName);
+        try {
+            executor.execute(() -> {
+                try {
+                    if (spec.isSegmented()) {
+                        finishSegmentCollection(podName, spec, sessionId);
+                    } else {
+                        copyRecordedVideo(podName, spec, sessionId);
+                    }
+                    collected.incrementAndGet();
+                } catch (Exception e) {
+                    failed.incrementAndGet();
+                    LOG.log(Level.WARNING, String.format("Unable to collect video of session %s", sessionId), e);
+                } finally {
+                    collecting.remove(podName);
+                    terminator.terminate(podName);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // copying on the caller would hold up the request ending the session, so the video is given up instead
+            Optional.ofNullable(recordings.remove(sessionId)).ifPresent(SegmentedRecording::cancel);
+            failed.incrementAndGet();
+            collecting.remove(podName);
+            LOG.warning(String.format("Too many videos waiting to be collected, discarding video of session %s "
+                    + "(pod: %s)", sessionId, podName));
+            terminator.terminate(podName);
+        }
+    }
+
+    Set<PodName> getCollectingPodNames() {
+        return Set.copyOf(collecting);
+    }
+
+    int getBacklog() {
+        return executor.getQueue().size() + executor.getActiveCount();
+    }
+
+    long getCollectedCount() {
+        return collected.get();
+    }
+
+    long getFailedCount() {
+        return failed.get();
+    }
+
+    long getBytesPerSecond() {
+        var millis = copyMillis.get();
+        return millis == 0 ? 0 : copiedBytes.get() * 1000 / millis;
+    }
+
+    boolean close(Duration timeout) {
+        segmentPuller.shutdownNow();
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                LOG.warning(String.format("%d videos were not collected before shutdown", getBacklog()));
+                executor.shutdownNow();
+                return false;
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    void copyRecordedVideo(PodName podName, WorkerPodSpec.VideoRecording spec, SessionId sessionId)
+            throws IOException {
+        var source = spec.getVideosPath().resolve("video.mp4");
+        var command = new String[]{"sh", "-c", String.format("pkill -INT ffmpeg; " +
+                "while pgrep ffmpeg > /dev/null; do sleep 0.1; done; cat %s", source)};
+        var destination = videosPath.get().resolve(sessionId.toString() + ".mp4");
+        var started = System.nanoTime();
+        var bytes = stream(podName, spec.getVideoContainerName(), command, destination);
+        record(bytes, started);
+        LOG.info(String.format("Collected video of session %s (pod: %s)", sessionId, podName));
+    }
+
+    void finishSegmentCollection(PodName podName, WorkerPodSpec.VideoRecording spec, SessionId sessionId)
+            throws IOException {
+        var recording = Optional.ofNullable(recordings.remove(sessionId))
+                .orElseGet(() -> new SegmentedRecording(podName, spec, sessionId));
+        recording.cancel();
+        k8s.streamCommandOutput(podName, spec.getVideoContainerName(), new String[]{"sh", "-c",
+                String.format("touch %s; pkill -INT ffmpeg; while pgrep ffmpeg > /dev/null; do sleep 0.1; done",
+                        spec.getStopFile())}, OutputStream.nullOutputStream(), timeout);
+        recording.pull(true);
+        recording.writePlaylist();
+        LOG.info(String.format("Collected %d video segments of session %s (pod: %s)", recording.pulled.size(),
+                sessionId, podName));
+    }
+
+    long stream(PodName podName, ContainerName containerName, String[] command, Path destination)
+            throws IOException {
+        var temporary = destination.resolveSibling(destination.getFileName() + ".part");
+        var digest = checksumAlgorithm.map(this::getMessageDigest);
+        try {
+            long bytes;
+            try (var file = new BufferedOutputStream(Files.newOutputStream(temporary));
+                 var counting = new CountingOutputStream(digest.<OutputStream>map(d ->
+                         new DigestOutputStream(file, d)).orElse(file))) {
+                k8s.streamCommandOutput(podName, containerName, command, counting, timeout);
+                bytes = counting.getCount();
+            }
+            Files.move(temporary, destination, StandardCopyOption.REPLACE_EXISTING);
+            if (digest.isPresent()) {
+                var checksum = BaseEncoding.base16().lowerCase().encode(digest.get().digest());
+                var extension = checksumAlgorithm.get().toLowerCase().replace("-", "");
+                Files.writeString(destination.resolveSibling(destination.getFileName() + "." + extension),
+                        String.format("%s  %s%n", checksum, destination.getFileName()));
+            }
+            return bytes;
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private MessageDigest getMessageDigest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    void record(long bytes, long startedNanos) {
+        copiedBytes.addAndGet(bytes);
+        copyMillis.addAndGet(Math.max(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedNanos), 1));
+    }
+
+    private class SegmentedRecording {
+
+        private final PodName podName;
+        private final WorkerPodSpec.VideoRecording spec;
+        private final SessionId sessionId;
+        private final Path directory;
+        private final Set<String> pulled = new LinkedHashSet<>();
+        private volatile ScheduledFuture<?> task;
+
+        SegmentedRecording(PodName podName, WorkerPodSpec.VideoRecording spec, SessionId sessionId) {
+            this.podName = podName;
+            this.spec = spec;
+            this.sessionId = sessionId;
+            this.directory = videosPath.get().resolve(sessionId.toString());
+        }
+
+        void cancel() {
+            if (task != null) {
+                task.cancel(false);
+            }
+        }
+
+        synchronized void pull(boolean includeLatest) throws IOException {
+            var listing = new ByteArrayOutputStream();
+            k8s.streamCommandOutput(podName, spec.getVideoContainerName(),
+                    new String[]{"ls", spec.getVideosPath().toString()}, listing, timeout);
+            var segments = listing.toString().lines().map(String::trim)
+                    .filter(name -> name.endsWith(spec.getSegmentExtension()))
+                    .sorted()
+                    .collect(Collectors.toList());
+            // the latest segment is still being written by ffmpeg unless recording has stopped
+            var completed = includeLatest || segments.isEmpty() ? segments : segments.subList(0, segments.size() - 1);
+            Files.createDirectories(directory);
+            for (var segment : completed) {
+                if (pulled.contains(segment)) {
+                    continue;
+                }
+                var started = System.nanoTime();
+                var bytes = stream(podName, spec.getVideoContainerName(),
+                        new String[]{"cat", spec.getVideosPath().resolve(segment).toString()},
+                        directory.resolve(segment));
+                record(bytes, started);
+                pulled.add(segment);
+            }
+        }
+
+        synchronized void writePlaylist() throws IOException {
+            var segmentSeconds = (double) spec.getSegmentDuration().orElseThrow().toSeconds();
+            var segments = List.copyOf(pulled);
+            // ffmpeg cuts the last segment short when it is stopped, so only that one is measured; the others are
+            // as long as the segment time, give or take a key frame
+            var lastSeconds = segments.isEmpty() ? Optional.<Double>empty() :
+                    measureDuration(segments.get(segments.size() - 1));
+            var targetDuration = (long) Math.ceil(lastSeconds.orElse(0.0));
+            if (segments.size() > 1 || lastSeconds.isEmpty()) {
+                targetDuration = Math.max(targetDuration, (long) segmentSeconds + 1);
+            }
+            var playlist = new StringBuilder()
+                    .append("#EXTM3U\n")
+                    .append("#EXT-X-VERSION:3\n")
+                    .append("#EXT-X-PLAYLIST-TYPE:VOD\n")
+                    .append(String.format("#EXT-X-TARGETDURATION:%d%n", targetDuration))
+                    .append("#EXT-X-MEDIA-SEQUENCE:0\n");
+            for (var i = 0; i < segments.size(); i++) {
+                var seconds = i == segments.size() - 1 ? lastSeconds.orElse(segmentSeconds) : segmentSeconds;
+                playlist.append(String.format(Locale.ROOT, "#EXTINF:%.3f,%n%s/%s%n", seconds, sessionId,
+                        segments.get(i)));
+            }
+            playlist.append("#EXT-X-ENDLIST\n");
+            Files.writeString(videosPath.get().resolve(sessionId.toString() + ".m3u8"), playlist);
+        }
+
+        private Optional<Double> measureDuration(String segment) {
+            var output = new ByteArrayOutputStream();
+            try {
+                k8s.streamCommandOutput(podName, spec.getVideoContainerName(), new String[]{"ffprobe", "-v",
+                        "error", "-show_entries", "format=duration", "-of", "csv=p=0",
+                        spec.getVideosPath().resolve(segment).toString()}, output, timeout);
+                return Optional.of(Double.parseDouble(output.toString().trim())).filter(d -> d > 0);
+            } catch (IOException | RuntimeException e) {
+                LOG.fine(String.format("Unable to measure video segment %s of session %s: %s", segment, sessionId,
+                        e.getMessage()));
+                return Optional.empty();
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.github.old_horizon.selenium.grid.node;
+
+import com.github.old_horizon.selenium.k8s.Ip;
+import com.github.old_horizon.selenium.k8s.PodName;
+
+import java.time.Duration;
+import java.time.Instant;
+
+class Worker {
+
+    private final PodName podName;
+    private final Ip podIp;
+    private final WorkerPodSpec podSpec;
+    private final Instant startTime;
+    private final int reuseCount;
+    private final Instant idleSince;
+
+    Worker(PodName podName, Ip podIp, WorkerPodSpec podSpec, Instant startTime) {
+        this(podName, podIp, podSpec, startTime, 0, startTime);
+    }
+
+    private Worker(PodName podName, Ip podIp, WorkerPodSpec podSpec, Instant startTime, int reuseCount,
+                   Instant idleSince) {
+        this.podName = podName;
+        this.podIp = podIp;
+        this.podSpec = podSpec;
+        this.startTime = startTime;
+        this.reuseCount = reuseCount;
+        this.idleSince = idleSince;
+    }
+
+    PodName getPodName() {
+        return podName;
+    }
+
+    Ip getPodIp() {
+        return podIp;
+    }
+
+    WorkerPodSpec getPodSpec() {
+        return podSpec;
+    }
+
+    Instant getStartTime() {
+        return startTime;
+    }
+
+    int getReuseCount() {
+        return reuseCount;
+    }
+
+    /**
+     * Returns the same pod as a worker that has served one more session and has been idle since {@code now}.
+     */
+    Worker recycled(Instant now) {
+        return new Worker(podName, podIp, podSpec, startTime, reuseCount + 1, now);
+    }
+
+    boolean isOlderThan(Duration age, Instant now) {
+        return startTime.plus(age).isBefore(now);
+    }
+
+    boolean isIdleLongerThan(Duration duration, Instant now) {
+        return idleSince.plus(duration).isBefore(now);
+    }
+
+    @Override
+    public String toString() {
+        return podName.toString();
+    }
+}
@@ -0,0 +1,51 @@
+package com.github.old_horizon.selenium.grid.node;
+
+import com.github.old_horizon.selenium.k8s.PodName;
+import io.fabric8.kubernetes.api.model.OwnerReference;
+
+import java.util.Map;
+
+import static com.github.old_horizon.selenium.grid.node.WorkerPodSpec.*;
+
+/**
+ * Who worker pods belong to: the grid pod that manages them, and the object whose lifetime bounds theirs. The latter
+ * is the grid pod itself unless sessions are recovered, in which case it is the controller the grid pod belongs to,
+ * so that the workers survive the grid pod being replaced.
+ */
+class WorkerOwner {
+
+    private final PodName instance;
+    private final OwnerReference reference;
+
+    WorkerOwner(PodName instance, OwnerReference reference) {
+        this.instance = instance;
+        this.reference = reference;
+    }
+
+    PodName getInstance() {
+        return instance;
+    }
+
+    OwnerReference getReference() {
+        return reference;
+    }
+
+    /**
+     * Selects the worker pods managed by this grid pod.
+     */
+    Map<String, String> getSelectorLabels() {
+        return Map.of(APP_LABEL, APP_LABEL_VALUE, OWNER_LABEL, instance.getValue());
+    }
+
+    /**
+     * Selects the worker pods of every grid pod sharing this one's owner, including those of a replaced grid pod.
+     */
+    Map<String, String> getGridLabels() {
+        return Map.of(APP_LABEL, APP_LABEL_VALUE, GRID_LABEL, reference.getName());
+    }
+
+    Map<String, String> getLabels() {
+        return Map.of(APP_LABEL, APP_LABEL_VALUE, OWNER_LABEL, instance.getValue(), GRID_LABEL,
+                reference.getName());
+    }
+}
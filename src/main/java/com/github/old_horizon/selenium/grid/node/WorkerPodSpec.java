@@ -2,43 +2,77 @@ package com.github.old_horizon.selenium.grid.node;
 
 import com.github.old_horizon.selenium.k8s.PodSpec;
 import com.github.old_horizon.selenium.k8s.*;
+import com.google.common.base.Suppliers;
 import io.fabric8.kubernetes.api.model.*;
 import org.openqa.selenium.Dimension;
 
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.TimeZone;
+import java.util.UUID;
+import java.util.function.Supplier;
 
 abstract class WorkerPodSpec implements PodSpec {
 
     static final ContainerName WORKER_CONTAINER_NAME = new ContainerName("worker");
     static final String DSHM_VOLUME_NAME = "dshm";
+    static final String APP_LABEL = "app.kubernetes.io/name";
+    static final String APP_LABEL_VALUE = "selenium-dynamic-grid-worker";
+    static final String OWNER_LABEL = "selenium-dynamic-grid/owner";
+    static final String GRID_LABEL = "selenium-dynamic-grid/grid";
+    static final String WORKER_LABEL = "selenium-dynamic-grid/worker";
 
     private static final int WORKER_PORT = 4444;
+    // a single slow /status response must not take a busy worker out of service
+    private static final int READINESS_FAILURE_THRESHOLD = 3;
 
     final ImagePullPolicy imagePullPolicy;
     final DockerImage image;
     final ResourceRequests resourceRequests;
+    final Optional<String> shmSize;
     final Optional<Dimension> screenResolution;
 
     private final Optional<TimeZone> timeZone;
-    private Map<String, String> envVars;
-    private final OwnerReference owner;
+    private final Map<String, String> envVars;
+    private final WorkerOwner owner;
+    private final Supplier<Pod> template;
 
     WorkerPodSpec(DockerImage image, ImagePullPolicy imagePullPolicy, ResourceRequests resourceRequests,
-                  Optional<Dimension> screenResolution, Optional<TimeZone> timeZone, Map<String, String> envVars,
-                  OwnerReference owner) {
+                  Optional<String> shmSize, Optional<Dimension> screenResolution, Optional<TimeZone> timeZone,
+                  Map<String, String> envVars, WorkerOwner owner) {
         this.imagePullPolicy = imagePullPolicy;
         this.image = image;
         this.resourceRequests = resourceRequests;
+        this.shmSize = shmSize;
         this.screenResolution = screenResolution;
         this.timeZone = timeZone;
         this.envVars = envVars;
         this.owner = owner;
+        this.template = Suppliers.memoize(this::buildTemplate);
     }
 
+    WorkerPodSpec(WorkerPodSpec base, Optional<Dimension> screenResolution, Optional<TimeZone> timeZone) {
+        this.imagePullPolicy = base.imagePullPolicy;
+        this.image = base.image;
+        this.resourceRequests = base.resourceRequests;
+        this.shmSize = base.shmSize;
+        this.screenResolution = screenResolution;
+        this.timeZone = timeZone;
+        this.envVars = base.envVars;
+        this.owner = base.owner;
+        // everything but the session settings is the same, so the base's template is shared
+        this.template = base.template;
+    }
+
+    /**
+     * Returns a spec with the given per-session settings, built from the same pod template as this one.
+     */
+    abstract WorkerPodSpec withSession(Optional<Dimension> screenResolution, Optional<TimeZone> timeZone);
+
     int getWorkerPort() {
         return WORKER_PORT;
     }
@@ -53,11 +87,26 @@ abstract class WorkerPodSpec implements PodSpec {
                 .withName(DSHM_VOLUME_NAME)
                 .withNewEmptyDir()
                 .withMedium("Memory")
+                .withSizeLimit(shmSize.map(Quantity::new).orElse(null))
                 .endEmptyDir()
                 .endVolume();
         // @formatter:on
     }
 
+    Probe readinessProbe(String path, int port) {
+        // @formatter:off
+        return new ProbeBuilder()
+                .withNewHttpGet()
+                    .withPath(path)
+                    .withNewPort(port)
+                .endHttpGet()
+                .withPeriodSeconds(1)
+                .withTimeoutSeconds(1)
+                .withFailureThreshold(READINESS_FAILURE_THRESHOLD)
+                .build();
+        // @formatter:on
+    }
+
     void applyResourceRequests(PodSpecFluent<PodFluent<PodBuilder>.SpecNested<PodBuilder>>
                                        .ContainersNested<PodFluent<PodBuilder>.SpecNested<PodBuilder>> spec) {
         var requests = new HashMap<String, Quantity>();
@@ -80,36 +129,6 @@ abstract class WorkerPodSpec implements PodSpec {
         spec.withResources(requirements);
     }
 
-    void setWorkerScreenResolution(PodSpecFluent<PodFluent<PodBuilder>.SpecNested<PodBuilder>>
-                                           .ContainersNested<PodFluent<PodBuilder>.SpecNested<PodBuilder>> spec) {
-        if (screenResolution.isPresent()) {
-            var sr = screenResolution.get();
-            // @formatter:off
-            spec.addNewEnv()
-                    .withName("SE_SCREEN_WIDTH")
-                    .withValue(Integer.toString(sr.getWidth()))
-                .endEnv()
-                .addNewEnv()
-                    .withName("SE_SCREEN_HEIGHT")
-                    .withValue(Integer.toString(sr.getHeight()))
-                .endEnv();
-            // @formatter:on
-        }
-    }
-
-    void setTimeZone(PodSpecFluent<PodFluent<PodBuilder>.SpecNested<PodBuilder>>
-                             .ContainersNested<PodFluent<PodBuilder>.SpecNested<PodBuilder>> spec) {
-        if (timeZone.isPresent()) {
-            var tz = timeZone.get();
-            // @formatter:off
-            spec.addNewEnv()
-                    .withName("TZ")
-                    .withValue(tz.getID())
-                .endEnv();
-            // @formatter:on
-        }
-    }
-
     void setEnvVars(PodSpecFluent<PodFluent<PodBuilder>.SpecNested<PodBuilder>>
                             .ContainersNested<PodFluent<PodBuilder>.SpecNested<PodBuilder>> spec) {
         envVars.forEach((k, v) -> {
@@ -126,11 +145,25 @@ abstract class WorkerPodSpec implements PodSpec {
 
     @Override
     public Pod build() {
+        var name = "worker-" + UUID.randomUUID().toString().replace("-", "").substring(0, 12);
+        // @formatter:off
+        var pod = new PodBuilder(template.get())
+                .editMetadata()
+                    .withName(name)
+                    .addToLabels(WORKER_LABEL, name)
+                .endMetadata()
+                .build();
+        // @formatter:on
+        pod.getSpec().getContainers().forEach(this::applySessionSettings);
+        return pod;
+    }
+
+    Pod buildTemplate() {
         // @formatter:off
         var spec = new PodBuilder()
                 .withNewMetadata()
-                    .withGenerateName("worker-")
-                    .withOwnerReferences(owner)
+                    .withLabels(owner.getLabels())
+                    .withOwnerReferences(owner.getReference())
                 .endMetadata()
                 .withNewSpec();
         // @formatter:on
@@ -139,12 +172,34 @@ abstract class WorkerPodSpec implements PodSpec {
         return spec.endSpec().build();
     }
 
+    void applySessionSettings(Container container) {
+        var env = new ArrayList<EnvVar>();
+        screenResolution.ifPresent(sr -> {
+            env.add(new EnvVar("SE_SCREEN_WIDTH", Integer.toString(sr.getWidth()), null));
+            env.add(new EnvVar("SE_SCREEN_HEIGHT", Integer.toString(sr.getHeight()), null));
+        });
+        if (container.getName().equals(WORKER_CONTAINER_NAME.getValue())) {
+            timeZone.ifPresent(tz -> env.add(new EnvVar("TZ", tz.getID(), null)));
+        }
+        // right after the first variable of the template, so that the grid's own SE_* variables still take precedence
+        container.getEnv().addAll(Math.min(container.getEnv().size(), 1), env);
+    }
+
     static class Default extends WorkerPodSpec {
 
         Default(DockerImage image, ImagePullPolicy imagePullPolicy, ResourceRequests resourceRequests,
-                Optional<Dimension> screenResolution, Optional<TimeZone> timeZone, Map<String, String> envVars,
-                OwnerReference owner) {
-            super(image, imagePullPolicy, resourceRequests, screenResolution, timeZone, envVars, owner);
+                Optional<String> shmSize, Optional<Dimension> screenResolution, Optional<TimeZone> timeZone,
+                Map<String, String> envVars, WorkerOwner owner) {
+            super(image, imagePullPolicy, resourceRequests, shmSize, screenResolution, timeZone, envVars, owner);
+        }
+
+        private Default(Default base, Optional<Dimension> screenResolution, Optional<TimeZone> timeZone) {
+            super(base, screenResolution, timeZone);
+        }
+
+        @Override
+        Default withSession(Optional<Dimension> screenResolution, Optional<TimeZone> timeZone) {
+            return new Default(this, screenResolution, timeZone);
         }
 
         @Override
@@ -166,11 +221,10 @@ abstract class WorkerPodSpec implements PodSpec {
                                     .addNewEnv()
                                         .withName("VNC_NO_PASSWORD")
                                         .withValue("1")
-                                    .endEnv();
+                                    .endEnv()
+                                    .withReadinessProbe(readinessProbe("/status", WORKER_PORT));
             // @formatter:on
             applyResourceRequests(containerSpec);
-            setWorkerScreenResolution(containerSpec);
-            setTimeZone(containerSpec);
             setEnvVars(containerSpec);
             containerSpec.endContainer();
         }
@@ -182,17 +236,51 @@ abstract class WorkerPodSpec implements PodSpec {
         private static final Path VIDEOS_PATH = Path.of("/videos");
         private static final String VIDEOS_VOLUME_NAME = "videos";
         private static final int VIDEO_PORT = 9000;
+        private static final String SEGMENT_EXTENSION = ".ts";
+        private static final String STOP_FILE_NAME = ".stop";
 
         private final DockerImage videoImage;
         private final ImagePullPolicy videoImagePullPolicy;
+        private final Optional<Duration> segmentDuration;
 
         VideoRecording(DockerImage workerImage, ImagePullPolicy workerImagePullPolicy, DockerImage videoImage,
                        ImagePullPolicy videoImagePullPolicy, ResourceRequests resourceRequests,
-                       Optional<Dimension> screenResolution, Optional<TimeZone> timeZone, Map<String, String> envVars,
-                       OwnerReference owner) {
-            super(workerImage, workerImagePullPolicy, resourceRequests, screenResolution, timeZone, envVars, owner);
+                       Optional<String> shmSize, Optional<Dimension> screenResolution, Optional<TimeZone> timeZone,
+                       Map<String, String> envVars, WorkerOwner owner, Optional<Duration> segmentDuration) {
+            super(workerImage, workerImagePullPolicy, resourceRequests, shmSize, screenResolution, timeZone, envVars,
+                    owner);
             this.videoImage = videoImage;
             this.videoImagePullPolicy = videoImagePullPolicy;
+            this.segmentDuration = segmentDuration;
+        }
+
+        private VideoRecording(VideoRecording base, Optional<Dimension> screenResolution,
+                               Optional<TimeZone> timeZone) {
+            super(base, screenResolution, timeZone);
+            this.videoImage = base.videoImage;
+            this.videoImagePullPolicy = base.videoImagePullPolicy;
+            this.segmentDuration = base.segmentDuration;
+        }
+
+        @Override
+        VideoRecording withSession(Optional<Dimension> screenResolution, Optional<TimeZone> timeZone) {
+            return new VideoRecording(this, screenResolution, timeZone);
+        }
+
+        boolean isSegmented() {
+            return segmentDuration.isPresent();
+        }
+
+        Optional<Duration> getSegmentDuration() {
+            return segmentDuration;
+        }
+
+        String getSegmentExtension() {
+            return SEGMENT_EXTENSION;
+        }
+
+        Path getStopFile() {
+            return VIDEOS_PATH.resolve(STOP_FILE_NAME);
         }
 
         int getVideoPort() {
@@ -232,15 +320,28 @@ abstract class WorkerPodSpec implements PodSpec {
                                     .addNewEnv()
                                         .withName("VNC_NO_PASSWORD")
                                         .withValue("1")
-                                    .endEnv();
+                                    .endEnv()
+                                    .withReadinessProbe(readinessProbe("/status", WORKER_PORT));
             // @formatter:on
             applyResourceRequests(containerSpec);
-            setWorkerScreenResolution(containerSpec);
-            setTimeZone(containerSpec);
             setEnvVars(containerSpec);
             containerSpec.endContainer();
         }
 
+        String getSegmentedRecordingScript(Duration duration) {
+            // Restarts ffmpeg until the display is available and resumes segment numbering after a crash;
+            // the stop file ends the loop while keeping the container alive for the last transfer.
+            return String.format("while [ ! -f %1$s ]; do " +
+                            "ffmpeg -nostdin -y -f x11grab " +
+                            "-video_size ${SE_SCREEN_WIDTH:-1360}x${SE_SCREEN_HEIGHT:-1020} " +
+                            "-r ${SE_FRAME_RATE:-15} -i ${DISPLAY_CONTAINER_NAME}:${DISPLAY_NUM:-99}.0 " +
+                            "-codec:v libx264 -preset ultrafast -pix_fmt yuv420p " +
+                            "-f segment -segment_time %2$d -segment_format mpegts -reset_timestamps 1 " +
+                            "-segment_start_number $(ls %3$s | grep -c '\\%4$s$') %3$s/segment-%%05d%4$s; " +
+                            "sleep 1; done; exec sleep infinity",
+                    getStopFile(), duration.toSeconds(), VIDEOS_PATH, SEGMENT_EXTENSION);
+        }
+
         void addVideosVolume(PodFluent<PodBuilder>.SpecNested<PodBuilder> spec) {
             // @formatter:off
             spec.addNewVolume()
@@ -266,18 +367,15 @@ abstract class WorkerPodSpec implements PodSpec {
                                         .withValue("localhost")
                                     .endEnv();
             // @formatter:on
-            if (screenResolution.isPresent()) {
-                var sr = screenResolution.get();
-                // @formatter:off
-                containerSpec.addNewEnv()
-                            .withName("SE_SCREEN_WIDTH")
-                            .withValue(Integer.toString(sr.getWidth()))
-                        .endEnv()
-                        .addNewEnv()
-                            .withName("SE_SCREEN_HEIGHT")
-                            .withValue(Integer.toString(sr.getHeight()))
-                        .endEnv();
-                // @formatter:on
+            if (segmentDuration.isPresent()) {
+                containerSpec.withCommand("sh", "-c", getSegmentedRecordingScript(segmentDuration.get()))
+                        .withReadinessProbe(new ProbeBuilder()
+                                .withNewExec().withCommand("pgrep", "ffmpeg").endExec()
+                                .withPeriodSeconds(1)
+                                .withFailureThreshold(READINESS_FAILURE_THRESHOLD)
+                                .build());
+            } else {
+                containerSpec.withReadinessProbe(readinessProbe("/status", VIDEO_PORT));
             }
             containerSpec.endContainer();
         }
@@ -0,0 +1,251 @@
+package com.github.old_horizon.selenium.grid.node;
+
+import com.github.old_horizon.selenium.k8s.PodName;
+import org.openqa.selenium.concurrent.GuardedRunnable;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+class WorkerPool implements Closeable {
+
+    private static final Logger LOG = Logger.getLogger(WorkerPool.class.getName());
+    private static final long MAINTENANCE_INTERVAL_SECONDS = 5;
+    private static final Duration CLOSE_TIMEOUT = Duration.ofSeconds(15);
+
+    private final String name;
+    private final Supplier<Worker> starter;
+    private final Predicate<Worker> validator;
+    private final Consumer<Worker> discarder;
+    private final int minIdle;
+    private final int maxIdle;
+    private final Duration ttl;
+    private final ConcurrentLinkedDeque<Worker> idle = new ConcurrentLinkedDeque<>();
+    private final Set<Worker> recycling = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger starting = new AtomicInteger();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong refills = new AtomicLong();
+    private final AtomicLong refillMillis = new AtomicLong();
+    private final AtomicLong recycled = new AtomicLong();
+    private final ScheduledExecutorService executor;
+    private final ThreadPoolExecutor recycler;
+    private volatile boolean closed;
+
+    WorkerPool(String name, Supplier<Worker> starter, Predicate<Worker> validator, Consumer<Worker> discarder,
+               int minIdle, int maxIdle, Duration ttl) {
+        this.name = name;
+        this.starter = starter;
+        this.validator = validator;
+        this.discarder = discarder;
+        this.minIdle = Math.min(minIdle, maxIdle);
+        this.maxIdle = maxIdle;
+        this.ttl = ttl;
+        this.executor = isEnabled() ? Executors.newScheduledThreadPool(Math.max(this.minIdle, 1), r -> {
+            var thread = new Thread(r);
+            thread.setDaemon(true);
+            thread.setName("Worker Pool - " + name);
+            return thread;
+        }) : null;
+        // resetting finished workers must not wait behind pod starts, and at most maxIdle of them are in progress
+        this.recycler = isEnabled() ? new ThreadPoolExecutor(0, maxIdle, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), r -> {
+            var thread = new Thread(r);
+            thread.setDaemon(true);
+            thread.setName("Worker Pool - " + name + " - Recycle");
+            return thread;
+        }) : null;
+    }
+
+    boolean isEnabled() {
+        return maxIdle > 0;
+    }
+
+    void start() {
+        if (isEnabled()) {
+            executor.scheduleWithFixedDelay(GuardedRunnable.guard(this::maintain), 0, MAINTENANCE_INTERVAL_SECONDS,
+                    TimeUnit.SECONDS);
+        }
+    }
+
+    Set<PodName> getIdlePodNames() {
+        var workers = new HashSet<>(recycling);
+        workers.addAll(idle);
+        return workers.stream().map(Worker::getPodName).collect(Collectors.toSet());
+    }
+
+    Optional<Worker> acquire() {
+        if (!isEnabled()) {
+            return Optional.empty();
+        }
+        try {
+            Worker worker;
+            while ((worker = idle.pollFirst()) != null) {
+                if (!worker.isIdleLongerThan(ttl, Instant.now()) && validator.test(worker)) {
+                    hits.incrementAndGet();
+                    return Optional.of(worker);
+                }
+                discard(worker);
+            }
+            misses.incrementAndGet();
+            return Optional.empty();
+        } finally {
+            executor.execute(GuardedRunnable.guard(this::refill));
+        }
+    }
+
+    /**
+     * Takes back the worker of a finished session. The worker is reset and validated in the background and only
+     * becomes idle if both succeed; {@code false} means the pool has no room and the caller still owns the worker.
+     */
+    boolean recycle(Worker worker, Predicate<Worker> reset) {
+        if (!isEnabled() || closed || idle.size() + recycling.size() >= maxIdle) {
+            return false;
+        }
+        recycling.add(worker);
+        try {
+            recycler.execute(GuardedRunnable.guard(() -> {
+                var usable = false;
+                try {
+                    usable = reset.test(worker) && validator.test(worker);
+                } finally {
+                    // whoever removes the worker from recycling owns it, so close() cannot discard it twice
+                    if (recycling.remove(worker)) {
+                        if (usable && !closed && idle.size() < maxIdle) {
+                            // most recently used first, so that surplus workers age out at the tail
+                            idle.offerFirst(worker);
+                            recycled.incrementAndGet();
+                            LOG.fine(String.format("Recycled worker to pool %s (pod: %s, reuse: %d)", name, worker,
+                                    worker.getReuseCount()));
+                        } else {
+                            discard(worker);
+                        }
+                    }
+                }
+            }));
+            return true;
+        } catch (RejectedExecutionException e) {
+            recycling.remove(worker);
+            return false;
+        }
+    }
+
+    @Override
+    public void close() {
+        close(CLOSE_TIMEOUT);
+    }
+
+    /**
+     * Stops the pool and hands its workers to the discarder, waiting at most {@code timeout} for recycling workers.
+     */
+    void close(Duration timeout) {
+        if (isEnabled()) {
+            closed = true;
+            executor.shutdownNow();
+            recycler.shutdown();
+            try {
+                if (!recycler.awaitTermination(timeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                    recycler.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                recycler.shutdownNow();
+            }
+            for (var worker : List.copyOf(recycling)) {
+                if (recycling.remove(worker)) {
+                    discard(worker);
+                }
+            }
+            Worker worker;
+            while ((worker = idle.pollFirst()) != null) {
+                discard(worker);
+            }
+        }
+    }
+
+    long getHits() {
+        return hits.get();
+    }
+
+    long getMisses() {
+        return misses.get();
+    }
+
+    int getIdleCount() {
+        return idle.size();
+    }
+
+    long getRefillCount() {
+        return refills.get();
+    }
+
+    long getRefillMillis() {
+        return refillMillis.get();
+    }
+
+    long getRecycledCount() {
+        return recycled.get();
+    }
+
+    private void maintain() {
+        var now = Instant.now();
+        var expired = new ArrayList<Worker>();
+        idle.removeIf(worker -> worker.isIdleLongerThan(ttl, now) && expired.add(worker));
+        expired.forEach(this::discard);
+        while (idle.size() > maxIdle) {
+            Optional.ofNullable(idle.pollLast()).ifPresent(this::discard);
+        }
+        refill();
+    }
+
+    private void refill() {
+        while (idle.size() + starting.get() < minIdle) {
+            starting.incrementAndGet();
+            executor.execute(GuardedRunnable.guard(this::startWorker));
+        }
+    }
+
+    private void startWorker() {
+        var started = System.nanoTime();
+        try {
+            var worker = starter.get();
+            idle.offerLast(worker);
+            refills.incrementAndGet();
+            refillMillis.addAndGet(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+            LOG.fine(String.format("Added idle worker to pool %s (pod: %s)", name, worker));
+        } catch (Exception e) {
+            LOG.log(Level.WARNING, String.format("Unable to start idle worker for pool %s", name), e);
+        } finally {
+            starting.decrementAndGet();
+        }
+    }
+
+    private void discard(Worker worker) {
+        try {
+            discarder.accept(worker);
+        } catch (Exception e) {
+            LOG.log(Level.WARNING, String.format("Unable to discard idle worker %s", worker), e);
+        }
+    }
+}
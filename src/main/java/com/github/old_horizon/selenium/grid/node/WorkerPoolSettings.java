@@ -0,0 +1,46 @@
+package com.github.old_horizon.selenium.grid.node;
+
+import java.time.Duration;
+
+class WorkerPoolSettings {
+
+    private final int minIdle;
+    private final int maxIdle;
+    private final Duration ttl;
+    private final boolean recycle;
+    private final int maxReuse;
+    private final Duration maxAge;
+
+    WorkerPoolSettings(int minIdle, int maxIdle, Duration ttl, boolean recycle, int maxReuse, Duration maxAge) {
+        this.minIdle = minIdle;
+        this.maxIdle = maxIdle;
+        this.ttl = ttl;
+        this.recycle = recycle;
+        this.maxReuse = maxReuse;
+        this.maxAge = maxAge;
+    }
+
+    int getMinIdle() {
+        return minIdle;
+    }
+
+    int getMaxIdle() {
+        return maxIdle;
+    }
+
+    Duration getTtl() {
+        return ttl;
+    }
+
+    boolean isRecycleEnabled() {
+        return recycle;
+    }
+
+    int getMaxReuse() {
+        return maxReuse;
+    }
+
+    Duration getMaxAge() {
+        return maxAge;
+    }
+}
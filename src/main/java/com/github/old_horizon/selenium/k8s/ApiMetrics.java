@@ -0,0 +1,93 @@
+package com.github.old_horizon.selenium.k8s;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class ApiMetrics {
+
+    private static final long[] BUCKET_BOUNDS_MILLIS = {5, 10, 25, 50, 100, 250, 500, 1_000, 2_500, 5_000, 10_000,
+            30_000};
+
+    private final Map<String, Operation> operations = new ConcurrentHashMap<>();
+    private final AtomicLong throttledNanos = new AtomicLong();
+
+    void record(String operation, long latencyNanos, boolean failed) {
+        operations.computeIfAbsent(operation, k -> new Operation()).record(latencyNanos, failed);
+    }
+
+    void throttled(long nanos) {
+        throttledNanos.addAndGet(nanos);
+    }
+
+    public long getRequestCount() {
+        return operations.values().stream().mapToLong(o -> o.count.get()).sum();
+    }
+
+    public long getErrorCount() {
+        return operations.values().stream().mapToLong(o -> o.errors.get()).sum();
+    }
+
+    public long getThrottledMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(throttledNanos.get());
+    }
+
+    /**
+     * Summarizes each operation as its request and error counts, average latency and the upper bounds of the
+     * histogram buckets holding the median and the 99th percentile.
+     */
+    public Map<String, String> getSummary() {
+        var summary = new TreeMap<String, String>();
+        operations.forEach((name, operation) -> summary.put(name, operation.toString()));
+        return summary;
+    }
+
+    private static class Operation {
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_BOUNDS_MILLIS.length + 1);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+
+        void record(long latencyNanos, boolean failed) {
+            var millis = TimeUnit.NANOSECONDS.toMillis(latencyNanos);
+            var bucket = 0;
+            while (bucket < BUCKET_BOUNDS_MILLIS.length && millis > BUCKET_BOUNDS_MILLIS[bucket]) {
+                bucket++;
+            }
+            buckets.incrementAndGet(bucket);
+            count.incrementAndGet();
+            totalNanos.addAndGet(latencyNanos);
+            if (failed) {
+                errors.incrementAndGet();
+            }
+        }
+
+        String getPercentile(double percentile) {
+            var total = 0L;
+            for (var i = 0; i < buckets.length(); i++) {
+                total += buckets.get(i);
+            }
+            var threshold = (long) Math.ceil(total * percentile);
+            var cumulative = 0L;
+            for (var i = 0; i < BUCKET_BOUNDS_MILLIS.length; i++) {
+                cumulative += buckets.get(i);
+                if (cumulative >= threshold) {
+                    return String.format("<=%dms", BUCKET_BOUNDS_MILLIS[i]);
+                }
+            }
+            return String.format(">%dms", BUCKET_BOUNDS_MILLIS[BUCKET_BOUNDS_MILLIS.length - 1]);
+        }
+
+        @Override
+        public String toString() {
+            var requests = count.get();
+            return String.format("requests=%d errors=%d avg=%dms p50%s p99%s", requests, errors.get(),
+                    requests == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalNanos.get() / requests),
+                    getPercentile(0.5), getPercentile(0.99));
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package com.github.old_horizon.selenium.k8s;
+
+import io.fabric8.kubernetes.api.model.Node;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.api.model.Quantity;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.informers.ResourceEventHandler;
+import io.fabric8.kubernetes.client.informers.SharedIndexInformer;
+import io.fabric8.kubernetes.client.informers.cache.ReducedStateItemStore;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+public class ClusterCapacity implements AutoCloseable {
+
+    private static final Logger LOG = Logger.getLogger(ClusterCapacity.class.getName());
+    private static final long RESYNC_PERIOD_MILLIS = 60_000;
+    // the informer reports a created pod within moments, this only bounds how long a missed event can hold room
+    private static final long BOUND_RESERVATION_TIMEOUT_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final Set<String> TERMINAL_PHASES = Set.of("Succeeded", "Failed");
+    private static final Set<String> BLOCKING_TAINT_EFFECTS = Set.of("NoSchedule", "NoExecute");
+
+    private final String namespace;
+    private final SharedIndexInformer<Node> nodeInformer;
+    private final SharedIndexInformer<Pod> podInformer;
+    // each event only adjusts the totals of the node or pod it is about, so nothing is recomputed from the caches
+    private final Map<String, long[]> allocatable = new HashMap<>();
+    private final Map<String, long[]> used = new HashMap<>();
+    private final Map<String, Usage> pods = new HashMap<>();
+    private final Map<String, Usage> pending = new LinkedHashMap<>();
+    private final List<Reservation> inFlight = new ArrayList<>();
+
+    ClusterCapacity(KubernetesClient client) {
+        this.namespace = client.getNamespace();
+        this.nodeInformer = client.nodes().inform(new ResourceEventHandler<>() {
+            @Override
+            public void onAdd(Node node) {
+                updated(node);
+            }
+
+            @Override
+            public void onUpdate(Node oldNode, Node newNode) {
+                updated(newNode);
+            }
+
+            @Override
+            public void onDelete(Node node, boolean deletedFinalStateUnknown) {
+                deleted(node);
+            }
+        }, RESYNC_PERIOD_MILLIS);
+        // finished pods hold no resources, so they are left out of the watch and the cache altogether; the others are
+        // cached with just the fields counted here
+        this.podInformer = client.pods().inAnyNamespace()
+                .withoutField("status.phase", "Succeeded")
+                .withoutField("status.phase", "Failed")
+                .runnableInformer(RESYNC_PERIOD_MILLIS)
+                .itemStore(new ReducedStateItemStore<>(ReducedStateItemStore.NAME_KEY_STATE, Pod.class,
+                        client.getKubernetesSerialization(), "spec.nodeName", "spec.containers", "status.phase"));
+        podInformer.addEventHandler(new ResourceEventHandler<>() {
+            @Override
+            public void onAdd(Pod pod) {
+                updated(pod);
+            }
+
+            @Override
+            public void onUpdate(Pod oldPod, Pod newPod) {
+                updated(newPod);
+            }
+
+            @Override
+            public void onDelete(Pod pod, boolean deletedFinalStateUnknown) {
+                deleted(pod);
+            }
+        });
+        podInformer.run();
+        LOG.info("Watching cluster capacity");
+    }
+
+    /**
+     * Reserves room for a pod with the given requests if at least one schedulable node could still fit it, taking
+     * pending pods and other reservations into account. The reservation should be bound to the pod once it is created,
+     * or closed if it is not.
+     */
+    public synchronized Optional<Reservation> tryReserve(long cpuMillis, long memoryBytes) {
+        var now = System.nanoTime();
+        inFlight.removeIf(reservation -> reservation.isExpired(now));
+        var nodes = getFreeCapacity();
+        for (var reservation : inFlight) {
+            place(nodes, reservation.cpuMillis, reservation.memoryBytes);
+        }
+        if (!place(nodes, cpuMillis, memoryBytes)) {
+            return Optional.empty();
+        }
+        var reservation = new Reservation(cpuMillis, memoryBytes);
+        inFlight.add(reservation);
+        return Optional.of(reservation);
+    }
+
+    public synchronized long getFreeCpuMillis() {
+        return getFreeCapacity().stream().mapToLong(n -> n[0]).sum();
+    }
+
+    public synchronized long getFreeMemoryBytes() {
+        return getFreeCapacity().stream().mapToLong(n -> n[1]).sum();
+    }
+
+    @Override
+    public void close() {
+        nodeInformer.close();
+        podInformer.close();
+    }
+
+    private synchronized void updated(Node node) {
+        var name = node.getMetadata().getName();
+        if (isSchedulable(node)) {
+            var resources = node.getStatus().getAllocatable();
+            allocatable.put(name, new long[]{cpuMillis(resources), memoryBytes(resources)});
+        } else {
+            allocatable.remove(name);
+        }
+    }
+
+    private synchronized void deleted(Node node) {
+        allocatable.remove(node.getMetadata().getName());
+    }
+
+    private synchronized void updated(Pod pod) {
+        var key = getKey(pod.getMetadata().getNamespace(), pod.getMetadata().getName());
+        remove(key);
+        if (pod.getStatus() != null && TERMINAL_PHASES.contains(pod.getStatus().getPhase())) {
+            return;
+        }
+        var usage = new Usage(pod.getSpec().getNodeName(), cpuMillis(pod), memoryBytes(pod));
+        pods.put(key, usage);
+        if (usage.nodeName == null) {
+            pending.put(key, usage);
+        } else {
+            var node = used.computeIfAbsent(usage.nodeName, n -> new long[2]);
+            node[0] += usage.cpuMillis;
+            node[1] += usage.memoryBytes;
+        }
+        // the pod now counts itself, so the room reserved for it is no longer needed
+        inFlight.removeIf(reservation -> key.equals(reservation.podKey));
+    }
+
+    private synchronized void deleted(Pod pod) {
+        remove(getKey(pod.getMetadata().getNamespace(), pod.getMetadata().getName()));
+    }
+
+    private void remove(String key) {
+        var usage = pods.remove(key);
+        if (usage == null) {
+            return;
+        }
+        if (usage.nodeName == null) {
+            pending.remove(key);
+            return;
+        }
+        var node = used.get(usage.nodeName);
+        node[0] -= usage.cpuMillis;
+        node[1] -= usage.memoryBytes;
+        if (node[0] == 0 && node[1] == 0) {
+            used.remove(usage.nodeName);
+        }
+    }
+
+    private List<long[]> getFreeCapacity() {
+        var free = new ArrayList<long[]>(allocatable.size());
+        allocatable.forEach((name, resources) -> {
+            var node = used.getOrDefault(name, new long[2]);
+            free.add(new long[]{resources[0] - node[0], resources[1] - node[1]});
+        });
+        // pods waiting for the scheduler will land somewhere, so assume the first node that fits them
+        pending.values().forEach(usage -> place(free, usage.cpuMillis, usage.memoryBytes));
+        return free;
+    }
+
+    private static String getKey(String namespace, String name) {
+        return namespace + "/" + name;
+    }
+
+    private static boolean place(List<long[]> nodes, long cpuMillis, long memoryBytes) {
+        for (var node : nodes) {
+            if (node[0] >= cpuMillis && node[1] >= memoryBytes) {
+                node[0] -= cpuMillis;
+                node[1] -= memoryBytes;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isSchedulable(Node node) {
+        if (Boolean.TRUE.equals(node.getSpec().getUnschedulable()) || node.getStatus() == null
+                || node.getStatus().getAllocatable() == null) {
+            return false;
+        }
+        var taints = node.getSpec().getTaints();
+        if (taints != null && taints.stream().anyMatch(t -> BLOCKING_TAINT_EFFECTS.contains(t.getEffect()))) {
+            return false;
+        }
+        var conditions = node.getStatus().getConditions();
+        return conditions != null && conditions.stream()
+                .anyMatch(c -> "Ready".equals(c.getType()) && "True".equals(c.getStatus()));
+    }
+
+    private static long cpuMillis(Pod pod) {
+        return pod.getSpec().getContainers().stream().filter(c -> c.getResources() != null)
+                .mapToLong(c -> cpuMillis(c.getResources().getRequests())).sum();
+    }
+
+    private static long memoryBytes(Pod pod) {
+        return pod.getSpec().getContainers().stream().filter(c -> c.getResources() != null)
+                .mapToLong(c -> memoryBytes(c.getResources().getRequests())).sum();
+    }
+
+    private static long cpuMillis(Map<String, Quantity> resources) {
+        return amount(resources, "cpu").movePointRight(3).longValue();
+    }
+
+    private static long memoryBytes(Map<String, Quantity> resources) {
+        return amount(resources, "memory").longValue();
+    }
+
+    private static BigDecimal amount(Map<String, Quantity> resources, String name) {
+        if (resources == null || !resources.containsKey(name)) {
+            return BigDecimal.ZERO;
+        }
+        return Quantity.getAmountInBytes(resources.get(name));
+    }
+
+    public static long toCpuMillis(String quantity) {
+        return Quantity.getAmountInBytes(new Quantity(quantity)).movePointRight(3).longValue();
+    }
+
+    public static long toMemoryBytes(String quantity) {
+        return Quantity.getAmountInBytes(new Quantity(quantity)).longValue();
+    }
+
+    private static class Usage {
+
+        private final String nodeName;
+        private final long cpuMillis;
+        private final long memoryBytes;
+
+        Usage(String nodeName, long cpuMillis, long memoryBytes) {
+            this.nodeName = nodeName;
+            this.cpuMillis = cpuMillis;
+            this.memoryBytes = memoryBytes;
+        }
+    }
+
+    public class Reservation implements AutoCloseable {
+
+        private final long cpuMillis;
+        private final long memoryBytes;
+        private String podKey;
+        private long boundAt;
+
+        Reservation(long cpuMillis, long memoryBytes) {
+            this.cpuMillis = cpuMillis;
+            this.memoryBytes = memoryBytes;
+        }
+
+        /**
+         * Keeps the room reserved until the informer reports the given pod, which then counts against the capacity
+         * itself.
+         */
+        public void bindTo(PodName podName) {
+            synchronized (ClusterCapacity.this) {
+                var key = getKey(namespace, podName.getValue());
+                if (pods.containsKey(key)) {
+                    inFlight.remove(this);
+                    return;
+                }
+                podKey = key;
+                boundAt = System.nanoTime();
+            }
+        }
+
+        @Override
+        public void close() {
+            synchronized (ClusterCapacity.this) {
+                inFlight.remove(this);
+            }
+        }
+
+        private boolean isExpired(long now) {
+            return podKey != null && now - boundAt > BOUND_RESERVATION_TIMEOUT_NANOS;
+        }
+    }
+}
@@ -2,52 +2,177 @@ package com.github.old_horizon.selenium.k8s;
 
 import dev.failsafe.Failsafe;
 import dev.failsafe.RetryPolicy;
+import io.fabric8.kubernetes.api.model.ObjectMeta;
 import io.fabric8.kubernetes.api.model.OwnerReference;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.api.model.PodBuilder;
 import io.fabric8.kubernetes.client.KubernetesClient;
 import io.fabric8.kubernetes.client.dsl.ExecListener;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.UncheckedIOException;
 import java.nio.file.Path;
 import java.time.Duration;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 public class KubernetesDriver {
 
+    private static final Duration POD_IP_TIMEOUT = Duration.ofMinutes(1);
+    private static final Set<String> FATAL_WAITING_REASONS = Set.of("ErrImagePull", "ImagePullBackOff",
+            "InvalidImageName", "ErrImageNeverPull", "CreateContainerConfigError", "CreateContainerError");
+
     private final KubernetesClient client;
+    private final Optional<TokenBucket> rateLimiter;
+    private final ApiMetrics metrics = new ApiMetrics();
+    private volatile PodWatcher watcher;
 
     public KubernetesDriver(KubernetesClient client) {
+        this(client, 0, 0);
+    }
+
+    public KubernetesDriver(KubernetesClient client, double qps, int burst) {
         this.client = client;
+        this.rateLimiter = qps > 0 ? Optional.of(new TokenBucket(qps, burst)) : Optional.empty();
+    }
+
+    public ApiMetrics getMetrics() {
+        return metrics;
+    }
+
+    public synchronized void watchPods(Map<String, String> labels) {
+        if (watcher == null) {
+            watcher = new PodWatcher(client, labels);
+        }
+    }
+
+    public ClusterCapacity watchClusterCapacity() {
+        return new ClusterCapacity(client);
     }
 
     public OwnerReference getOwnerReference(PodName name) {
-        return toOwnerReference(client.pods().withName(name.getValue()).get());
+        return toOwnerReference(call("get", () -> client.pods().withName(name.getValue()).get()));
+    }
+
+    /**
+     * Returns the controller at the top of the pod's ownership chain, e.g. the Deployment behind its ReplicaSet, or the
+     * pod itself when it has none. Unlike the pod, the controller stays the same across rollouts.
+     */
+    public OwnerReference getControllerReference(PodName name) {
+        var pod = call("get", () -> client.pods().withName(name.getValue()).get());
+        var controller = getController(pod.getMetadata());
+        if (controller.isEmpty()) {
+            return toOwnerReference(pod);
+        }
+        var reference = controller.get();
+        if ("ReplicaSet".equals(reference.getKind())) {
+            var replicaSet = call("get", () -> client.apps().replicaSets().withName(controller.get().getName())
+                    .get());
+            reference = Optional.ofNullable(replicaSet).flatMap(r -> getController(r.getMetadata())).orElse(reference);
+        }
+        // only ties the workers' lifetime to the controller, without blocking its deletion or being managed by it
+        return new OwnerReference(reference.getApiVersion(), false, false, reference.getKind(), reference.getName(),
+                reference.getUid());
+    }
+
+    public Optional<Pod> getPod(PodName name) {
+        return Optional.ofNullable(call("get", () -> client.pods().withName(name.getValue()).get()));
     }
 
     public PodName createPod(PodSpec spec) {
-        var pod = client.resource(spec.build()).create();
+        var pod = call("create", () -> client.resource(spec.build()).create());
         return new PodName(pod.getMetadata().getName());
     }
 
+    public void annotatePod(PodName name, Map<String, String> labels, Map<String, String> annotations) {
+        // @formatter:off
+        call("patch", () -> client.pods().withName(name.getValue()).edit(pod -> new PodBuilder(pod)
+                .editMetadata()
+                    .addToLabels(labels)
+                    .addToAnnotations(annotations)
+                .endMetadata()
+                .build()));
+        // @formatter:on
+    }
+
+    public void removePodLabel(PodName name, String label) {
+        // @formatter:off
+        call("patch", () -> client.pods().withName(name.getValue()).edit(pod -> new PodBuilder(pod)
+                .editMetadata()
+                    .removeFromLabels(label)
+                .endMetadata()
+                .build()));
+        // @formatter:on
+    }
+
+    public List<Pod> listPods(Map<String, String> labels, String requiredLabel) {
+        return call("list", () -> client.pods().withLabels(labels).withLabel(requiredLabel).list().getItems());
+    }
+
     public Ip getPodIp(PodName name) {
+        if (watcher == null) {
+            return pollPodIp(name);
+        }
+        var pod = awaitPod(name, p -> p.getStatus() != null && p.getStatus().getPodIP() != null, POD_IP_TIMEOUT);
+        return new Ip(pod.getStatus().getPodIP());
+    }
+
+    public boolean isWatchingPods() {
+        return watcher != null;
+    }
+
+    public Pod awaitPod(PodName name, Predicate<Pod> condition, Duration timeout) {
+        if (watcher == null) {
+            throw new IllegalStateException("Pods are not watched.");
+        }
+        var future = watcher.await(name, condition);
+        try {
+            return future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            var cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new RuntimeException(cause);
+        } catch (TimeoutException e) {
+            throw new RuntimeException(String.format("Timed out waiting for pod %s after %s", name, timeout), e);
+        } finally {
+            future.cancel(false);
+        }
+    }
+
+    Ip pollPodIp(PodName name) {
         var retryPolicy = RetryPolicy.<String>builder()
                 .withMaxRetries(-1)
-                .withMaxDuration(Duration.ofMinutes(1))
+                .withMaxDuration(POD_IP_TIMEOUT)
                 .withDelay(Duration.ofMillis(500))
                 .handleResultIf(Objects::isNull)
                 .build();
 
         var ip = Failsafe.with(retryPolicy).get(() ->
-                client.pods().withName(name.getValue()).get().getStatus().getPodIP());
+                call("get", () -> client.pods().withName(name.getValue()).get()).getStatus().getPodIP());
         return new Ip(ip);
     }
 
     public String executeCommand(PodName podName, ContainerName containerName, String[] commands) {
+        return call("exec", () -> doExecuteCommand(podName, containerName, commands));
+    }
+
+    private String doExecuteCommand(PodName podName, ContainerName containerName, String[] commands) {
         var latch = new CountDownLatch(1);
         try (var out = new ByteArrayOutputStream();
              var ignore = client.pods().withName(podName.getValue()).inContainer(containerName.getValue())
@@ -60,16 +185,124 @@ public class KubernetesDriver {
         }
     }
 
+    public void streamCommandOutput(PodName podName, ContainerName containerName, String[] commands,
+                                    OutputStream out, Duration timeout) throws IOException {
+        throttle();
+        var started = System.nanoTime();
+        var failed = true;
+        try {
+            doStreamCommandOutput(podName, containerName, commands, out, timeout);
+            failed = false;
+        } finally {
+            metrics.record("exec", System.nanoTime() - started, failed);
+        }
+    }
+
+    private void doStreamCommandOutput(PodName podName, ContainerName containerName, String[] commands,
+                                       OutputStream out, Duration timeout) throws IOException {
+        var err = new ByteArrayOutputStream();
+        try (var watch = client.pods().withName(podName.getValue()).inContainer(containerName.getValue())
+                .writingOutput(out).writingError(err).exec(commands)) {
+            var exitCode = watch.exitCode().get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            if (exitCode == null || exitCode != 0) {
+                throw new IOException(String.format("Command %s exited with %s: %s", Arrays.toString(commands),
+                        exitCode, err));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IOException("Failed to execute command: " + Arrays.toString(commands), e);
+        }
+    }
+
     public void copyFile(PodName podName, ContainerName containerName, Path source, Path destination) {
-        client.pods().withName(podName.getValue()).inContainer(containerName.getValue()).file(source.toString())
-                .copy(destination);
+        call("copy", () -> client.pods().withName(podName.getValue()).inContainer(containerName.getValue())
+                .file(source.toString()).copy(destination));
     }
 
     public void deletePod(PodName name) {
-        client.pods().withName(name.getValue()).delete();
+        call("delete", () -> client.pods().withName(name.getValue()).delete());
+    }
+
+    public void deletePod(PodName name, Optional<Duration> gracePeriod) {
+        var pod = client.pods().withName(name.getValue());
+        call("delete", () -> gracePeriod.isPresent() ? pod.withGracePeriod(gracePeriod.get().toSeconds()).delete()
+                : pod.delete());
+    }
+
+    public void deletePods(Map<String, String> labels, String nameLabel, Collection<PodName> names,
+                           Optional<Duration> gracePeriod) {
+        var pods = client.pods().withLabels(labels)
+                .withLabelIn(nameLabel, names.stream().map(PodName::getValue).toArray(String[]::new));
+        call("delete", () -> gracePeriod.isPresent() ? pods.withGracePeriod(gracePeriod.get().toSeconds()).delete()
+                : pods.delete());
+    }
+
+    public int deletePods(Map<String, String> labels, Duration gracePeriod) {
+        return call("delete", () -> client.pods().withLabels(labels).withGracePeriod(gracePeriod.toSeconds())
+                .delete()).size();
+    }
+
+    public void checkStartable(Pod pod) {
+        var status = pod.getStatus();
+        if (status == null) {
+            return;
+        }
+        if ("Failed".equals(status.getPhase())) {
+            throw new PodStartupException(String.format("Pod %s failed: %s", pod.getMetadata().getName(),
+                    status.getReason()));
+        }
+        Optional.ofNullable(status.getConditions()).stream().flatMap(List::stream)
+                .filter(c -> "PodScheduled".equals(c.getType()) && "False".equals(c.getStatus())
+                        && "Unschedulable".equals(c.getReason()))
+                .findFirst()
+                .ifPresent(c -> {
+                    throw new PodStartupException(String.format("Pod %s is unschedulable: %s",
+                            pod.getMetadata().getName(), c.getMessage()));
+                });
+        Optional.ofNullable(status.getContainerStatuses()).stream().flatMap(List::stream)
+                .filter(c -> c.getState() != null && c.getState().getWaiting() != null
+                        && FATAL_WAITING_REASONS.contains(c.getState().getWaiting().getReason()))
+                .findFirst()
+                .ifPresent(c -> {
+                    var waiting = c.getState().getWaiting();
+                    throw new PodStartupException(String.format("Container %s in pod %s is unable to start: %s %s",
+                            c.getName(), pod.getMetadata().getName(), waiting.getReason(), waiting.getMessage()));
+                });
+    }
+
+    private <T> T call(String operation, Supplier<T> request) {
+        throttle();
+        var started = System.nanoTime();
+        var failed = true;
+        try {
+            var result = request.get();
+            failed = false;
+            return result;
+        } finally {
+            metrics.record(operation, System.nanoTime() - started, failed);
+        }
+    }
+
+    private void throttle() {
+        if (rateLimiter.isEmpty()) {
+            return;
+        }
+        try {
+            metrics.throttled(rateLimiter.get().acquire());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static Optional<OwnerReference> getController(ObjectMeta metadata) {
+        return metadata.getOwnerReferences().stream().filter(r -> Boolean.TRUE.equals(r.getController()))
+                .findFirst();
     }
 
-    OwnerReference toOwnerReference(io.fabric8.kubernetes.api.model.Pod owner) {
+    OwnerReference toOwnerReference(Pod owner) {
         var metadata = owner.getMetadata();
         return new OwnerReference(owner.getApiVersion(), false, true, owner.getKind(),
                 metadata.getName(), metadata.getUid());
@@ -0,0 +1,10 @@
+package com.github.old_horizon.selenium.k8s;
+
+public class PodStartupException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public PodStartupException(String message) {
+        super(message);
+    }
+}
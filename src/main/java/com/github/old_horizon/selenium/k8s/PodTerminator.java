@@ -0,0 +1,183 @@
+package com.github.old_horizon.selenium.k8s;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+public class PodTerminator {
+
+    private static final Logger LOG = Logger.getLogger(PodTerminator.class.getName());
+    private static final int MAX_BATCH_SIZE = 50;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final Duration RETRY_DELAY = Duration.ofSeconds(1);
+
+    private final KubernetesDriver k8s;
+    private final Map<String, String> labels;
+    private final String nameLabel;
+    private final Optional<Duration> gracePeriod;
+    private final BlockingQueue<Request> queue;
+    private final ExecutorService workers;
+    private final ScheduledExecutorService retries;
+    // counts every accepted pod until it is deleted or given up on, including while it is taken off the queue
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicLong deleted = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong deletionMillis = new AtomicLong();
+    private volatile boolean closed;
+
+    public PodTerminator(KubernetesDriver k8s, Map<String, String> labels, String nameLabel, int concurrency,
+                         int queueSize, Optional<Duration> gracePeriod) {
+        this.k8s = k8s;
+        this.labels = labels;
+        this.nameLabel = nameLabel;
+        this.gracePeriod = gracePeriod;
+        this.queue = new LinkedBlockingQueue<>(queueSize);
+        this.workers = Executors.newFixedThreadPool(concurrency, r -> {
+            var thread = new Thread(r);
+            thread.setDaemon(true);
+            thread.setName("Pod Terminator");
+            return thread;
+        });
+        this.retries = Executors.newSingleThreadScheduledExecutor(r -> {
+            var thread = new Thread(r);
+            thread.setDaemon(true);
+            thread.setName("Pod Terminator - Retry");
+            return thread;
+        });
+        for (var i = 0; i < concurrency; i++) {
+            workers.execute(this::run);
+        }
+    }
+
+    public void terminate(PodName name) {
+        pending.incrementAndGet();
+        enqueue(new Request(name, System.nanoTime(), 0));
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    public long getDeletedCount() {
+        return deleted.get();
+    }
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    public long getAverageDeletionMillis() {
+        var count = deleted.get();
+        return count == 0 ? 0 : deletionMillis.get() / count;
+    }
+
+    public boolean close(Duration timeout) {
+        closed = true;
+        var deadline = System.nanoTime() + timeout.toNanos();
+        try {
+            while (pending.get() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(100);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        workers.shutdownNow();
+        retries.shutdownNow();
+        if (!queue.isEmpty()) {
+            LOG.warning(String.format("%d pods were not deleted before shutdown: %s", queue.size(),
+                    queue.stream().map(r -> r.name.getValue()).collect(Collectors.joining(", "))));
+            return false;
+        }
+        return pending.get() == 0;
+    }
+
+    public int forceDeleteAll() {
+        try {
+            return k8s.deletePods(labels, Duration.ZERO);
+        } catch (Exception e) {
+            LOG.log(Level.WARNING, "Unable to force delete remaining pods", e);
+            return 0;
+        }
+    }
+
+    private void enqueue(Request request) {
+        if (closed || !queue.offer(request)) {
+            delete(List.of(request));
+        }
+    }
+
+    private void run() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                var batch = new ArrayList<Request>();
+                batch.add(queue.take());
+                queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+                delete(batch);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void delete(List<Request> batch) {
+        try {
+            if (batch.size() == 1) {
+                k8s.deletePod(batch.get(0).name, gracePeriod);
+            } else {
+                k8s.deletePods(labels, nameLabel, batch.stream().map(r -> r.name).collect(Collectors.toList()),
+                        gracePeriod);
+            }
+            var now = System.nanoTime();
+            batch.forEach(r -> {
+                deleted.incrementAndGet();
+                deletionMillis.addAndGet(TimeUnit.NANOSECONDS.toMillis(now - r.enqueuedAt));
+            });
+            pending.addAndGet(-batch.size());
+            LOG.fine(() -> String.format("Deleted %d pods", batch.size()));
+        } catch (Exception e) {
+            LOG.log(Level.WARNING, String.format("Unable to delete %d pods", batch.size()), e);
+            batch.forEach(this::retry);
+        }
+    }
+
+    private void retry(Request request) {
+        var next = request.retried();
+        if (closed || next.attempts >= MAX_ATTEMPTS) {
+            failed.incrementAndGet();
+            pending.decrementAndGet();
+            LOG.warning(String.format("Giving up deleting pod %s", request.name));
+            return;
+        }
+        try {
+            retries.schedule(() -> enqueue(next), RETRY_DELAY.toMillis() * next.attempts, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            failed.incrementAndGet();
+            pending.decrementAndGet();
+        }
+    }
+
+    private static class Request {
+
+        private final PodName name;
+        private final long enqueuedAt;
+        private final int attempts;
+
+        Request(PodName name, long enqueuedAt, int attempts) {
+            this.name = name;
+            this.enqueuedAt = enqueuedAt;
+            this.attempts = attempts;
+        }
+
+        Request retried() {
+            return new Request(name, enqueuedAt, attempts + 1);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.github.old_horizon.selenium.k8s;
+
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.informers.ResourceEventHandler;
+import io.fabric8.kubernetes.client.informers.SharedIndexInformer;
+import io.fabric8.kubernetes.client.informers.cache.Cache;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Predicate;
+import java.util.logging.Logger;
+
+class PodWatcher implements ResourceEventHandler<Pod>, AutoCloseable {
+
+    private static final Logger LOG = Logger.getLogger(PodWatcher.class.getName());
+    private static final long RESYNC_PERIOD_MILLIS = 30_000;
+
+    private final String namespace;
+    private final Map<String, Queue<Waiter>> waiters = new ConcurrentHashMap<>();
+    private final SharedIndexInformer<Pod> informer;
+
+    PodWatcher(KubernetesClient client, Map<String, String> labels) {
+        this.namespace = client.getNamespace();
+        this.informer = client.pods().withLabels(labels).inform(this, RESYNC_PERIOD_MILLIS);
+        LOG.info("Watching worker pods labeled with " + labels);
+    }
+
+    CompletableFuture<Pod> await(PodName name, Predicate<Pod> condition) {
+        var waiter = new Waiter(condition);
+        waiters.compute(name.getValue(), (k, queue) -> {
+            var q = queue == null ? new ConcurrentLinkedQueue<Waiter>() : queue;
+            q.add(waiter);
+            return q;
+        });
+        waiter.future.whenComplete((pod, t) -> remove(name.getValue(), waiter));
+        var cached = informer.getStore().getByKey(Cache.namespaceKeyFunc(namespace, name.getValue()));
+        if (cached != null) {
+            waiter.test(cached);
+        }
+        return waiter.future;
+    }
+
+    @Override
+    public void onAdd(Pod pod) {
+        notify(pod);
+    }
+
+    @Override
+    public void onUpdate(Pod oldPod, Pod newPod) {
+        notify(newPod);
+    }
+
+    @Override
+    public void onDelete(Pod pod, boolean deletedFinalStateUnknown) {
+        var queue = waiters.get(pod.getMetadata().getName());
+        if (queue != null) {
+            queue.forEach(w -> w.future.completeExceptionally(
+                    new IllegalStateException("Pod was deleted: " + pod.getMetadata().getName())));
+        }
+    }
+
+    @Override
+    public void close() {
+        informer.close();
+    }
+
+    private void notify(Pod pod) {
+        var queue = waiters.get(pod.getMetadata().getName());
+        if (queue != null) {
+            queue.forEach(w -> w.test(pod));
+        }
+    }
+
+    private void remove(String name, Waiter waiter) {
+        waiters.computeIfPresent(name, (k, queue) -> {
+            queue.remove(waiter);
+            return queue.isEmpty() ? null : queue;
+        });
+    }
+
+    private static class Waiter {
+
+        private final Predicate<Pod> condition;
+        private final CompletableFuture<Pod> future = new CompletableFuture<>();
+
+        Waiter(Predicate<Pod> condition) {
+            this.condition = condition;
+        }
+
+        void test(Pod pod) {
+            try {
+                if (condition.test(pod)) {
+                    future.complete(pod);
+                }
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.github.old_horizon.selenium.k8s;
+
+import java.util.concurrent.TimeUnit;
+
+class TokenBucket {
+
+    private final double tokensPerNano;
+    private final double capacity;
+    private double tokens;
+    private long refilledAt;
+
+    TokenBucket(double tokensPerSecond, int capacity) {
+        this.tokensPerNano = tokensPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.capacity = Math.max(capacity, 1);
+        this.tokens = this.capacity;
+        this.refilledAt = System.nanoTime();
+    }
+
+    /**
+     * Takes a token, waiting for one to be refilled if the bucket is empty, and returns the nanoseconds waited.
+     */
+    long acquire() throws InterruptedException {
+        var wait = reserve();
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+        return wait;
+    }
+
+    private synchronized long reserve() {
+        var now = System.nanoTime();
+        tokens = Math.min(tokens + (now - refilledAt) * tokensPerNano, capacity);
+        refilledAt = now;
+        // the balance may go negative, which queues callers behind each other in arrival order
+        tokens -= 1;
+        return tokens >= 0 ? 0 : (long) (-tokens / tokensPerNano);
+    }
+}
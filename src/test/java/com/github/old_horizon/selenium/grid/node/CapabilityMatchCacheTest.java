@@ -0,0 +1,81 @@
+package com.github.old_horizon.selenium.grid.node;
+
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.ImmutableCapabilities;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class CapabilityMatchCacheTest {
+
+    private static final ImmutableCapabilities CHROME = new ImmutableCapabilities("browserName", "chrome");
+
+    @Test
+    void matchesGroupsByStereotype() {
+        var chrome = TestSlotGroups.create("chrome", 1);
+        var firefox = TestSlotGroups.create("firefox", 1);
+        var cache = new CapabilityMatchCache(List.of(chrome, firefox), 10);
+
+        assertThat(cache.getMatchingGroups(CHROME), contains(chrome));
+        assertThat(cache.getMatchingGroups(new ImmutableCapabilities("browserName", "safari")), is(empty()));
+    }
+
+    @Test
+    void evaluatesTheMatcherOncePerCapabilities() {
+        var chrome = spy(TestSlotGroups.create("chrome", 1));
+        var cache = new CapabilityMatchCache(List.of(chrome), 10);
+
+        cache.getMatchingGroups(CHROME);
+        cache.getMatchingGroups(new ImmutableCapabilities("browserName", "chrome"));
+
+        verify(chrome, times(1)).test(any());
+        assertThat(cache.getHitCount(), is(1L));
+        assertThat(cache.getMissCount(), is(1L));
+    }
+
+    @Test
+    void matchesAgainstUpdatedGroupsAndKeepsStatistics() {
+        var cache = new CapabilityMatchCache(List.of(TestSlotGroups.create("firefox", 1)), 10);
+        cache.getMatchingGroups(CHROME);
+        var chrome = TestSlotGroups.create("chrome", 1);
+
+        cache.update(List.of(chrome));
+
+        assertThat(cache.getMatchingGroups(CHROME), contains(chrome));
+        assertThat(cache.getMissCount(), is(2L));
+    }
+
+    @Test
+    void loadRunningDuringUpdateDoesNotOutliveIt() throws Exception {
+        var matching = new CountDownLatch(1);
+        var proceed = new CountDownLatch(1);
+        var retired = spy(TestSlotGroups.create("chrome", 1));
+        doAnswer(invocation -> {
+            matching.countDown();
+            proceed.await();
+            return true;
+        }).when(retired).test(any());
+        var cache = new CapabilityMatchCache(List.of(retired), 10);
+        var executor = Executors.newSingleThreadExecutor();
+        try {
+            var stale = executor.submit(() -> cache.getMatchingGroups(CHROME));
+            assertThat(matching.await(10, TimeUnit.SECONDS), is(true));
+            var current = TestSlotGroups.create("chrome", 1);
+
+            cache.update(List.of(current));
+            proceed.countDown();
+
+            assertThat(stale.get(10, TimeUnit.SECONDS), contains(retired));
+            assertThat(cache.getMatchingGroups(CHROME), contains(current));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.github.old_horizon.selenium.grid.node;
+
+import org.openjdk.jmh.annotations.*;
+import org.openqa.selenium.grid.data.Availability;
+import org.openqa.selenium.grid.data.NodeId;
+import org.openqa.selenium.grid.data.NodeStatus;
+import org.openqa.selenium.grid.data.Slot;
+import org.openqa.selenium.grid.data.SlotId;
+import org.openqa.selenium.grid.node.local.SessionSlot;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Builds the status of an idle node from the snapshot and by copying every slot as before. The snapshot's cost should
+ * not depend on the slot count.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NodeStatusBenchmark {
+
+    private static final URI URI = java.net.URI.create("http://localhost:5555");
+
+    @Param({"10", "100", "1000"})
+    int slotCount;
+
+    private final NodeId nodeId = new NodeId(UUID.randomUUID());
+    private List<SessionSlot> slots;
+    private NodeStatusSnapshot snapshot;
+
+    @Setup
+    public void setUp() {
+        slots = TestSlotGroups.create("chrome", slotCount).getSlots();
+        snapshot = new NodeStatusSnapshot(nodeId, slots, this::newStatus);
+    }
+
+    @Benchmark
+    public NodeStatus snapshot() {
+        return snapshot.get(Availability.UP);
+    }
+
+    @Benchmark
+    public NodeStatus rebuilt() {
+        return newStatus(slots.stream().map(slot -> new Slot(new SlotId(nodeId, slot.getId()), slot.getStereotype(),
+                Instant.EPOCH, null)).collect(Collectors.toUnmodifiableSet()), Availability.UP);
+    }
+
+    private NodeStatus newStatus(Set<Slot> slots, Availability availability) {
+        return new NodeStatus(nodeId, URI, slotCount, slots, availability, Duration.ofSeconds(60), "benchmark",
+                Map.of());
+    }
+}
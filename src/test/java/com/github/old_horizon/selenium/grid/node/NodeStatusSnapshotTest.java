@@ -0,0 +1,140 @@
+package com.github.old_horizon.selenium.grid.node;
+
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.ImmutableCapabilities;
+import org.openqa.selenium.grid.data.NodeId;
+import org.openqa.selenium.grid.data.NodeStatus;
+import org.openqa.selenium.grid.data.Session;
+import org.openqa.selenium.grid.data.Slot;
+import org.openqa.selenium.grid.node.local.SessionSlot;
+import org.openqa.selenium.remote.SessionId;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.openqa.selenium.grid.data.Availability.DRAINING;
+import static org.openqa.selenium.grid.data.Availability.UP;
+
+class NodeStatusSnapshotTest {
+
+    private static final URI URI = java.net.URI.create("http://localhost:5555");
+
+    private final NodeId nodeId = new NodeId(UUID.randomUUID());
+
+    @Test
+    void returnsCachedStatusWhileNothingChanges() {
+        var snapshot = newSnapshot(TestSlotGroups.create("chrome", 3).getSlots());
+
+        var first = snapshot.get(UP);
+
+        assertThat(first.getSlots(), hasSize(3));
+        assertThat(snapshot.get(UP), is(sameInstance(first)));
+    }
+
+    @Test
+    void rebuildsStatusWhenAvailabilityChanges() {
+        var snapshot = newSnapshot(TestSlotGroups.create("chrome", 1).getSlots());
+        var up = snapshot.get(UP);
+
+        var draining = snapshot.get(DRAINING);
+
+        assertThat(draining, is(not(sameInstance(up))));
+        assertThat(draining.getAvailability(), is(DRAINING));
+    }
+
+    @Test
+    void tracksSessionsThroughTheSlotLifecycle() {
+        var slot = TestSlotGroups.create("chrome", 1).getSlots().get(0);
+        var snapshot = newSnapshot(List.of(slot));
+        var idle = snapshot.get(UP);
+        var version = snapshot.getVersion();
+
+        snapshot.reserved(slot);
+        snapshot.started(slot, newSession(slot));
+        var busy = snapshot.get(UP);
+
+        assertThat(snapshot.getVersion(), is(greaterThan(version)));
+        assertThat(busy, is(not(sameInstance(idle))));
+        assertThat(getSlot(busy).getSession(), is(notNullValue()));
+
+        snapshot.released(slot);
+
+        assertThat(getSlot(snapshot.get(UP)).getSession(), is(nullValue()));
+    }
+
+    @Test
+    void dropsRemovedSlots() {
+        var slots = TestSlotGroups.create("chrome", 2).getSlots();
+        var snapshot = newSnapshot(slots);
+        snapshot.get(UP);
+
+        snapshot.removed(slots.get(0));
+
+        var status = snapshot.get(UP);
+        assertThat(status.getSlots(), hasSize(1));
+        assertThat(getSlot(status).getId().getSlotId(), is(slots.get(1).getId()));
+    }
+
+    @Test
+    void neverKeepsServingAStatusOlderThanTheLastUpdate() throws Exception {
+        var slots = TestSlotGroups.create("chrome", 8).getSlots();
+        var snapshot = newSnapshot(slots);
+        var start = new CountDownLatch(1);
+        var done = new AtomicBoolean();
+        var executor = Executors.newFixedThreadPool(slots.size() + 1);
+        try {
+            var reader = executor.submit(() -> {
+                start.await();
+                while (!done.get()) {
+                    snapshot.get(UP);
+                }
+                return null;
+            });
+            var writers = slots.stream().map(slot -> executor.submit(() -> {
+                start.await();
+                for (var i = 0; i < 2_000; i++) {
+                    snapshot.reserved(slot);
+                    snapshot.started(slot, newSession(slot));
+                    snapshot.released(slot);
+                }
+                return null;
+            })).collect(Collectors.<Future<Object>>toList());
+            start.countDown();
+            for (var writer : writers) {
+                writer.get(30, TimeUnit.SECONDS);
+            }
+            done.set(true);
+            reader.get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(snapshot.get(UP).getSlots().stream().allMatch(slot -> slot.getSession() == null), is(true));
+    }
+
+    private NodeStatusSnapshot newSnapshot(List<SessionSlot> slots) {
+        return new NodeStatusSnapshot(nodeId, slots, (s, availability) -> new NodeStatus(nodeId, URI, slots.size(),
+                s, availability, Duration.ofSeconds(60), "test", Map.of()));
+    }
+
+    private static Session newSession(SessionSlot slot) {
+        return new Session(new SessionId(UUID.randomUUID()), URI, slot.getStereotype(),
+                new ImmutableCapabilities("browserName", "chrome"), Instant.now());
+    }
+
+    private static Slot getSlot(NodeStatus status) {
+        return status.getSlots().iterator().next();
+    }
+}
@@ -0,0 +1,131 @@
+package com.github.old_horizon.selenium.grid.node;
+
+import com.github.old_horizon.selenium.k8s.PodStartupException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PodCreationLimiterTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration LATENCY_TARGET = Duration.ofSeconds(1);
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void timesOutOnceTheGlobalLimitIsReached() {
+        var limiter = new PodCreationLimiter(1, 2, 2, LATENCY_TARGET);
+        limiter.acquire("chrome", TIMEOUT);
+        limiter.acquire("firefox", TIMEOUT);
+
+        assertThrows(PodStartupException.class, () -> limiter.acquire("edge", Duration.ofMillis(50)));
+        assertThat(limiter.getInFlight(), is(2));
+        assertThat(limiter.getWaiting(), is(0));
+    }
+
+    @Test
+    void limitsEachStereotypeSeparately() {
+        var limiter = new PodCreationLimiter(1, 4, 1, LATENCY_TARGET);
+        limiter.acquire("chrome", TIMEOUT);
+
+        assertThrows(PodStartupException.class, () -> limiter.acquire("chrome", Duration.ofMillis(50)));
+        limiter.acquire("firefox", TIMEOUT);
+        assertThat(limiter.getInFlight(), is(2));
+    }
+
+    @Test
+    void servesWaitingStereotypesRoundRobin() throws Exception {
+        var limiter = new PodCreationLimiter(1, 1, 1, LATENCY_TARGET);
+        var held = limiter.acquire("chrome", TIMEOUT);
+        var granted = new CopyOnWriteArrayList<String>();
+        var chrome1 = await(limiter, "chrome", "chrome-1", granted, 1);
+        var chrome2 = await(limiter, "chrome", "chrome-2", granted, 2);
+        var firefox = await(limiter, "firefox", "firefox-1", granted, 3);
+
+        held.release(false, FAST);
+        chrome1.get(10, TimeUnit.SECONDS).release(false, FAST);
+        firefox.get(10, TimeUnit.SECONDS).release(false, FAST);
+        chrome2.get(10, TimeUnit.SECONDS).release(false, FAST);
+
+        assertThat(granted, contains("chrome-1", "firefox-1", "chrome-2"));
+        assertThat(limiter.getInFlight(), is(0));
+    }
+
+    @Test
+    void halvesTheLimitOncePerBurstOfFailures() {
+        var limiter = new PodCreationLimiter(1, 8, 8, LATENCY_TARGET);
+        var permits = List.of(limiter.acquire("chrome", TIMEOUT), limiter.acquire("chrome", TIMEOUT));
+
+        permits.get(0).release(true, FAST);
+        permits.get(1).release(false, LATENCY_TARGET.toNanos() * 2);
+
+        assertThat(limiter.getLimit(), is(4));
+        assertThat(limiter.getDecreaseCount(), is(1L));
+    }
+
+    @Test
+    void growsBackByAboutOnePerLimitsWorthOfFastCreations() {
+        var limiter = new PodCreationLimiter(1, 8, 8, LATENCY_TARGET);
+        limiter.acquire("chrome", TIMEOUT).release(true, FAST);
+
+        for (var i = 0; i < 5; i++) {
+            limiter.acquire("chrome", TIMEOUT).release(false, FAST);
+        }
+
+        assertThat(limiter.getLimit(), is(5));
+    }
+
+    @Test
+    void neverGoesBelowTheMinimumLimit() {
+        var limiter = new PodCreationLimiter(3, 8, 8, LATENCY_TARGET);
+
+        for (var i = 0; i < 5; i++) {
+            limiter.acquire("chrome", TIMEOUT).release(true, FAST);
+        }
+
+        assertThat(limiter.getLimit(), is(3));
+    }
+
+    @Test
+    void releasingTwiceHasNoEffect() {
+        var limiter = new PodCreationLimiter(1, 2, 2, LATENCY_TARGET);
+        var permit = limiter.acquire("chrome", TIMEOUT);
+        limiter.acquire("chrome", TIMEOUT);
+
+        permit.release(false, FAST);
+        permit.release(false, FAST);
+
+        assertThat(limiter.getInFlight(), is(1));
+    }
+
+    private Future<PodCreationLimiter.Permit> await(PodCreationLimiter limiter, String stereotype, String name,
+                                                    List<String> granted, int waiting) throws InterruptedException {
+        var future = executor.submit(() -> {
+            var permit = limiter.acquire(stereotype, TIMEOUT);
+            granted.add(name);
+            return permit;
+        });
+        var deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (limiter.getWaiting() < waiting && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        return future;
+    }
+}
@@ -0,0 +1,89 @@
+package com.github.old_horizon.selenium.grid.node;
+
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.grid.node.local.SessionSlot;
+import org.openqa.selenium.remote.SessionId;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class SessionRegistryTest {
+
+    private static final Duration TICK = Duration.ofMillis(10);
+
+    private final SessionSlot slot = TestSlotGroups.create("chrome", 1).getSlots().get(0);
+    private final Map<SessionId, Boolean> removals = new ConcurrentHashMap<>();
+    private final SessionRegistry registry = new SessionRegistry(TICK, (id, slot, expired) ->
+            removals.put(id, expired));
+
+    @Test
+    void evictsIdleSessions() throws Exception {
+        var id = newSessionId();
+
+        registry.put(id, slot, Duration.ofMillis(50), Optional.empty());
+
+        assertThat(registry.contains(id), is(true));
+        awaitRemoval(id, Duration.ofSeconds(5));
+        assertThat(removals.get(id), is(true));
+        assertThat(registry.contains(id), is(false));
+        assertThat(registry.size(), is(0));
+    }
+
+    @Test
+    void accessPostponesIdleTimeout() throws Exception {
+        var id = newSessionId();
+        registry.put(id, slot, Duration.ofMillis(200), Optional.empty());
+
+        for (var i = 0; i < 10; i++) {
+            Thread.sleep(50);
+            assertThat(registry.get(id).isPresent(), is(true));
+        }
+
+        awaitRemoval(id, Duration.ofSeconds(5));
+        assertThat(removals.get(id), is(true));
+    }
+
+    @Test
+    void maxDurationCapsAccessedSessions() throws Exception {
+        var id = newSessionId();
+        registry.put(id, slot, Duration.ofSeconds(10), Optional.of(Duration.ofMillis(200)));
+        var started = System.nanoTime();
+
+        while (removals.get(id) == null && System.nanoTime() - started < TimeUnit.SECONDS.toNanos(5)) {
+            registry.get(id);
+            Thread.sleep(10);
+        }
+
+        assertThat(removals.get(id), is(true));
+    }
+
+    @Test
+    void removedSessionIsNotEvictedLater() throws Exception {
+        var id = newSessionId();
+        registry.put(id, slot, Duration.ofMillis(50), Optional.empty());
+
+        registry.remove(id);
+        Thread.sleep(200);
+
+        assertThat(removals.get(id), is(false));
+        assertThat(registry.contains(id), is(false));
+    }
+
+    private void awaitRemoval(SessionId id, Duration timeout) throws InterruptedException {
+        var deadline = System.nanoTime() + timeout.toNanos();
+        while (!removals.containsKey(id) && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    private static SessionId newSessionId() {
+        return new SessionId(UUID.randomUUID());
+    }
+}
@@ -0,0 +1,138 @@
+package com.github.old_horizon.selenium.grid.node;
+
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.grid.node.local.SessionSlot;
+
+import java.util.ArrayList;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class SlotGroupTest {
+
+    private static final int THREADS = 8;
+
+    @Test
+    void reservesEverySlotOnce() {
+        var group = newGroup(3);
+
+        var reserved = Stream.generate(group::reserve).limit(4).collect(Collectors.toList());
+
+        assertThat(reserved.subList(0, 3).stream().allMatch(Optional::isPresent), is(true));
+        assertThat(reserved.get(3).isPresent(), is(false));
+        assertThat(reserved.stream().flatMap(Optional::stream).collect(Collectors.toSet()), hasSize(3));
+        assertThat(reserved.get(0).get().isAvailable(), is(false));
+    }
+
+    @Test
+    void releasedSlotIsReservedAgain() {
+        var group = newGroup(1);
+        var slot = group.reserve().orElseThrow();
+
+        assertThat(group.release(slot), is(true));
+
+        assertThat(slot.isAvailable(), is(true));
+        assertThat(group.getAvailableCount(), is(1));
+        assertThat(group.reserve().orElseThrow(), is(sameInstance(slot)));
+    }
+
+    @Test
+    void retiredGroupDrainsFreeSlotsAndDropsReleasedOnes() {
+        var group = newGroup(2);
+        var inUse = group.reserve().orElseThrow();
+
+        var drained = group.retire();
+
+        assertThat(drained, hasSize(1));
+        assertThat(drained, not(hasItem(inUse)));
+        assertThat(group.reserve().isPresent(), is(false));
+        assertThat(group.release(inUse), is(false));
+        assertThat(group.getAvailableCount(), is(0));
+    }
+
+    @Test
+    void concurrentReservationsNeverShareASlot() throws Exception {
+        var group = newGroup(4);
+        var holders = new ConcurrentHashMap<SessionSlot, Boolean>();
+        var conflicts = new AtomicInteger();
+        var executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            var futures = new ArrayList<Future<?>>();
+            for (var i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    for (var j = 0; j < 10_000; j++) {
+                        var slot = group.reserve();
+                        if (slot.isEmpty()) {
+                            continue;
+                        }
+                        if (holders.putIfAbsent(slot.get(), true) != null) {
+                            conflicts.incrementAndGet();
+                        }
+                        holders.remove(slot.get());
+                        group.release(slot.get());
+                    }
+                }));
+            }
+            for (var future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(conflicts.get(), is(0));
+        assertThat(group.getAvailableCount(), is(4));
+    }
+
+    @Test
+    void everySlotIsDroppedExactlyOnceWhenReleaseRacesRetire() throws Exception {
+        for (var round = 0; round < 200; round++) {
+            var group = newGroup(THREADS);
+            var slots = Stream.generate(group::reserve).limit(THREADS).map(Optional::orElseThrow)
+                    .collect(Collectors.toList());
+            var dropped = ConcurrentHashMap.<SessionSlot>newKeySet();
+            var start = new CountDownLatch(1);
+            var executor = Executors.newFixedThreadPool(THREADS + 1);
+            try {
+                var releases = slots.stream().map(slot -> executor.submit(() -> {
+                    start.await();
+                    if (!group.release(slot)) {
+                        assertThat(dropped.add(slot), is(true));
+                    }
+                    return null;
+                })).collect(Collectors.toList());
+                var retired = executor.submit(() -> {
+                    start.await();
+                    return group.retire();
+                });
+                start.countDown();
+                for (var release : releases) {
+                    release.get(10, TimeUnit.SECONDS);
+                }
+                for (var slot : retired.get(10, TimeUnit.SECONDS)) {
+                    assertThat(dropped.add(slot), is(true));
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+
+            assertThat(dropped, is(Set.copyOf(slots)));
+            assertThat(group.getAvailableCount(), is(0));
+        }
+    }
+
+    private static SlotGroup newGroup(int size) {
+        return TestSlotGroups.create("chrome", size);
+    }
+}
@@ -0,0 +1,82 @@
+package com.github.old_horizon.selenium.grid.node;
+
+import org.openjdk.jmh.annotations.*;
+import org.openqa.selenium.Capabilities;
+import org.openqa.selenium.ImmutableCapabilities;
+import org.openqa.selenium.grid.data.DefaultSlotMatcher;
+import org.openqa.selenium.grid.data.SlotMatcher;
+import org.openqa.selenium.grid.node.local.SessionSlot;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Reserves and releases a slot for the last of several stereotypes, through the stereotype index and through the
+ * single-lock scan over every slot that it replaced. Run with {@code -t} to compare how both scale with concurrent
+ * distributor threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SlotReservationBenchmark {
+
+    @Param({"10"})
+    int stereotypes;
+
+    @Param({"100"})
+    int maxSessions;
+
+    private final SlotMatcher slotMatcher = new DefaultSlotMatcher();
+    private final Object lock = new Object();
+    private CapabilityMatchCache matchCache;
+    private List<SessionSlot> slots;
+    private Capabilities requested;
+
+    @Setup
+    public void setUp() {
+        var groups = IntStream.range(0, stereotypes)
+                .mapToObj(i -> TestSlotGroups.create("browser-" + i, maxSessions))
+                .collect(Collectors.toList());
+        matchCache = new CapabilityMatchCache(groups, 1024);
+        slots = groups.stream().flatMap(g -> g.getSlots().stream()).collect(Collectors.toList());
+        requested = new ImmutableCapabilities("browserName", "browser-" + (stereotypes - 1));
+    }
+
+    @Benchmark
+    public boolean indexed() {
+        for (var group : matchCache.getMatchingGroups(requested)) {
+            var slot = group.reserve();
+            if (slot.isPresent()) {
+                group.release(slot.get());
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Benchmark
+    public boolean lockedScan() {
+        SessionSlot reserved = null;
+        synchronized (lock) {
+            for (var slot : slots) {
+                if (slot.isAvailable() && slotMatcher.matches(slot.getStereotype(), requested)) {
+                    slot.reserve();
+                    reserved = slot;
+                    break;
+                }
+            }
+        }
+        if (reserved == null) {
+            return false;
+        }
+        synchronized (lock) {
+            reserved.release();
+        }
+        return true;
+    }
+}
@@ -0,0 +1,32 @@
+package com.github.old_horizon.selenium.grid.node;
+
+import org.openqa.selenium.Capabilities;
+import org.openqa.selenium.ImmutableCapabilities;
+import org.openqa.selenium.events.EventBus;
+import org.openqa.selenium.grid.data.DefaultSlotMatcher;
+import org.openqa.selenium.grid.node.local.SessionSlot;
+
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+final class TestSlotGroups {
+
+    private TestSlotGroups() {
+    }
+
+    static SlotGroup create(String browserName, int size) {
+        var stereotype = new ImmutableCapabilities("browserName", browserName);
+        var matcher = new DefaultSlotMatcher();
+        var factory = mock(KubernetesSessionFactory.class);
+        when(factory.getStereotype()).thenReturn(stereotype);
+        when(factory.test(any())).thenAnswer(invocation ->
+                matcher.matches(stereotype, invocation.<Capabilities>getArgument(0)));
+        var eventBus = mock(EventBus.class);
+        return new SlotGroup(browserName, factory, Stream.generate(() -> new SessionSlot(eventBus, stereotype, factory))
+                .limit(size).collect(Collectors.toList()));
+    }
+}
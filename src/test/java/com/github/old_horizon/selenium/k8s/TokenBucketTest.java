@@ -0,0 +1,66 @@
+package com.github.old_horizon.selenium.k8s;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class TokenBucketTest {
+
+    @Test
+    void letsABurstThroughWithoutWaiting() throws Exception {
+        var bucket = new TokenBucket(1, 5);
+
+        for (var i = 0; i < 5; i++) {
+            assertThat(bucket.acquire(), is(0L));
+        }
+    }
+
+    @Test
+    void waitsForRefillOnceEmpty() throws Exception {
+        var bucket = new TokenBucket(20, 1);
+        bucket.acquire();
+
+        var started = System.nanoTime();
+        var waited = bucket.acquire();
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(waited), is(both(greaterThan(25L)).and(lessThanOrEqualTo(50L))));
+        assertThat(System.nanoTime() - started, is(greaterThanOrEqualTo(waited)));
+    }
+
+    @Test
+    void queuesConcurrentCallersAtTheConfiguredRate() throws Exception {
+        var rate = 100;
+        var bucket = new TokenBucket(rate, 10);
+        var threads = 8;
+        var perThread = 20;
+        var executor = Executors.newFixedThreadPool(threads);
+        var started = System.nanoTime();
+        try {
+            var futures = new ArrayList<Future<?>>();
+            for (var i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    for (var j = 0; j < perThread; j++) {
+                        bucket.acquire();
+                    }
+                    return null;
+                }));
+            }
+            for (var future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // all but the initial burst have to wait for their token
+        var minimumMillis = (threads * perThread - 10) * 1000L / rate;
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started),
+                is(greaterThanOrEqualTo(minimumMillis - 10)));
+    }
+}